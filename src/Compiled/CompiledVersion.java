@@ -157,11 +157,9 @@ public class CompiledVersion {
             for (int size : sizes) {
                 System.out.println("Testing matrix size: " + size + "x" + size);
 
-                // Generate matrices once per size
-                Matrix A = new Matrix(size, size);
-                Matrix B = new Matrix(size, size);
-                A.assignRandom();
-                B.assignRandom();
+                // Generate matrices once per size (reloaded from -Dmatrix.input.dir when set)
+                Matrix A = MatrixFile.inputMatrix("A", size, size);
+                Matrix B = MatrixFile.inputMatrix("B", size, size);
 
                 // Run sequential always first to get baseline time & memory
                 System.gc();
@@ -384,7 +382,7 @@ public class CompiledVersion {
                         long start = System.nanoTime();
                         ForkJoinPool pool = new ForkJoinPool(threads);
                         pool.invoke(new SimpleMatrixBenchmark.CustomThresholdTask(
-                                A, B, C, 0, A.length, 128, blockSize, false));
+                                A, B, C, 0, A.length, 128, blockSize, KernelRegistry.BLOCKED));
                         pool.shutdown();
                         long end = System.nanoTime();
 
@@ -403,7 +401,7 @@ public class CompiledVersion {
                         long start = System.nanoTime();
                         ForkJoinPool pool = new ForkJoinPool(threads);
                         pool.invoke(new SimpleMatrixBenchmark.CustomThresholdTask(
-                                A, transposedB, C, 0, A.length, 128, blockSize, true));
+                                A, transposedB, C, 0, A.length, 128, blockSize, KernelRegistry.BLOCKED_TRANSPOSED));
                         pool.shutdown();
                         long end = System.nanoTime();
 
@@ -659,7 +657,7 @@ public class CompiledVersion {
                         long startTime = System.nanoTime();
                         ForkJoinPool pool = new ForkJoinPool(threads);
                         pool.invoke(new SimpleMatrixBenchmark.CustomThresholdTask(
-                                A, transposedB, C, 0, A.length, threshold, 32, true));
+                                A, transposedB, C, 0, A.length, threshold, 32, KernelRegistry.BLOCKED_TRANSPOSED));
                         pool.shutdown();
                         long endTime = System.nanoTime();
 
@@ -0,0 +1,34 @@
+package Configuration;
+
+/**
+ * Headless listener that prints a progress line whenever the whole
+ * percentage changes
+ */
+public class ConsoleProgressListener implements ProgressListener {
+    private final String label;
+    private int lastPercent = -1;
+
+    public ConsoleProgressListener(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public synchronized void onProgress(long completed, long total, long etaMillis) {
+        int percent = total == 0 ? 100 : (int) (completed * 100 / total);
+        if (percent == lastPercent) {
+            return;
+        }
+        lastPercent = percent;
+        if (etaMillis < 0) {
+            System.out.printf("%s: %d%%\n", label, percent);
+        } else {
+            System.out.printf("%s: %d%% (ETA %.1f s)\n", label, percent, etaMillis / 1000.0);
+        }
+    }
+
+    @Override
+    public synchronized void onComplete(long total, long elapsedMillis) {
+        lastPercent = 100;
+        System.out.printf("%s: 100%% (%d ms)\n", label, elapsedMillis);
+    }
+}
@@ -0,0 +1,137 @@
+package Configuration;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compressed-sparse-row matrix. Row i holds the nonzeros
+ * values[rowPtr[i] .. rowPtr[i+1]) in columns colIdx[...] of the same range,
+ * so a sparse x dense product only touches the stored entries and costs
+ * O(nnz * n) instead of O(rows * cols * n).
+ */
+public class CsrMatrix {
+    public final int row, col;
+    public final int[] rowPtr;
+    public final int[] colIdx;
+    public final double[] values;
+
+    public CsrMatrix(int row, int column, int[] rowPtr, int[] colIdx, double[] values) {
+        if (rowPtr.length != row + 1 || colIdx.length != values.length || rowPtr[row] != values.length) {
+            throw new IllegalArgumentException("Inconsistent CSR arrays for a " + row + "x" + column + " matrix");
+        }
+        this.row = row;
+        this.col = column;
+        this.rowPtr = rowPtr;
+        this.colIdx = colIdx;
+        this.values = values;
+    }
+
+    public static CsrMatrix from(double[][] matrix) {
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+
+        int[] rowPtr = new int[rows + 1];
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int j = 0; j < cols; j++) {
+                if (matrix[i][j] != 0.0) {
+                    count++;
+                }
+            }
+            rowPtr[i + 1] = rowPtr[i] + count;
+        }
+
+        int[] colIdx = new int[rowPtr[rows]];
+        double[] values = new double[rowPtr[rows]];
+        for (int i = 0; i < rows; i++) {
+            int p = rowPtr[i];
+            for (int j = 0; j < cols; j++) {
+                if (matrix[i][j] != 0.0) {
+                    colIdx[p] = j;
+                    values[p] = matrix[i][j];
+                    p++;
+                }
+            }
+        }
+
+        return new CsrMatrix(rows, cols, rowPtr, colIdx, values);
+    }
+
+    public static CsrMatrix from(Matrix matrix) {
+        return from(matrix.matrix);
+    }
+
+    /**
+     * Random matrix where each entry is nonzero with the given probability
+     */
+    public static CsrMatrix random(int rows, int cols, double density, Random random) {
+        int[] rowPtr = new int[rows + 1];
+        int capacity = (int) Math.min((long) Integer.MAX_VALUE - 8, (long) (rows * (long) cols * density * 1.1) + 16);
+        int[] colIdx = new int[capacity];
+        double[] values = new double[capacity];
+        int nnz = 0;
+
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                if (random.nextDouble() < density) {
+                    if (nnz == colIdx.length) {
+                        colIdx = Arrays.copyOf(colIdx, colIdx.length * 2);
+                        values = Arrays.copyOf(values, values.length * 2);
+                    }
+                    colIdx[nnz] = j;
+                    values[nnz] = random.nextDouble(1000);
+                    nnz++;
+                }
+            }
+            rowPtr[i + 1] = nnz;
+        }
+
+        return new CsrMatrix(rows, cols, rowPtr, Arrays.copyOf(colIdx, nnz), Arrays.copyOf(values, nnz));
+    }
+
+    public int nnz() {
+        return rowPtr[row];
+    }
+
+    public double density() {
+        return row == 0 || col == 0 ? 0.0 : (double) nnz() / ((double) row * col);
+    }
+
+    public FlatMatrix toFlat() {
+        FlatMatrix result = new FlatMatrix(row, col);
+        for (int i = 0; i < row; i++) {
+            int base = i * result.stride;
+            for (int p = rowPtr[i]; p < rowPtr[i + 1]; p++) {
+                result.data[base + colIdx[p]] = values[p];
+            }
+        }
+        return result;
+    }
+
+    public FlatMatrix multiplication(FlatMatrix b) {
+        if (this.col != b.row) {return null;}
+        FlatMatrix result = new FlatMatrix(this.row, b.col);
+        multiplyRows(this, b, result, 0, this.row);
+        return result;
+    }
+
+    /**
+     * C[startRow..endRow) += A * B: every stored A[i][k] scales row k of B
+     * into row i of C
+     */
+    public static void multiplyRows(CsrMatrix A, FlatMatrix B, FlatMatrix C, int startRow, int endRow) {
+        final double[] b = B.data, c = C.data;
+        final int n = B.col;
+
+        for (int i = startRow; i < endRow; i++) {
+            int cBase = i * C.stride;
+            for (int p = A.rowPtr[i]; p < A.rowPtr[i + 1]; p++) {
+                double aik = A.values[p];
+                int bBase = A.colIdx[p] * B.stride;
+                for (int j = 0; j < n; j++) {
+                    c[cBase + j] += aik * b[bBase + j];
+                }
+            }
+        }
+    }
+}
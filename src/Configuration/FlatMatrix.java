@@ -0,0 +1,285 @@
+package Configuration;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dense row-major matrix backed by a single contiguous double[].
+ * Element (i, j) lives at data[i * stride + j], so a whole row is one
+ * unit-stride run of memory and the inner loops of the kernels below touch
+ * a single array with no row-pointer load per access.
+ *
+ * The matrix carries a modification version so caches of derived data
+ * (see OperandCache) can tell when it changed. The mutators here bump it;
+ * code that writes data[] directly must call markModified() afterwards.
+ */
+public class FlatMatrix {
+    public final int row, col;
+    public final int stride;
+    public final double[] data;
+    private final AtomicLong version = new AtomicLong();
+
+    public FlatMatrix(int row, int column) {
+        this(row, column, column);
+    }
+
+    /**
+     * @param row Number of rows
+     * @param column Number of columns
+     * @param stride Distance in elements between the starts of two rows (>= column)
+     */
+    public FlatMatrix(int row, int column, int stride) {
+        if (stride < column) {
+            throw new IllegalArgumentException("Stride " + stride + " is smaller than column count " + column);
+        }
+        this.row = row;
+        this.col = column;
+        this.stride = stride;
+        this.data = new double[Math.multiplyExact(row, stride)];
+    }
+
+    /**
+     * Copy a jagged array into flat storage
+     */
+    public static FlatMatrix from(double[][] matrix) {
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        FlatMatrix flat = new FlatMatrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            System.arraycopy(matrix[i], 0, flat.data, i * flat.stride, cols);
+        }
+        return flat;
+    }
+
+    public static FlatMatrix from(Matrix matrix) {
+        return from(matrix.matrix);
+    }
+
+    public int index(int i, int j) {
+        return i * stride + j;
+    }
+
+    public double get(int i, int j) {
+        return data[i * stride + j];
+    }
+
+    public void set(int i, int j, double value) {
+        data[i * stride + j] = value;
+        version.incrementAndGet();
+    }
+
+    /**
+     * Current modification version; changes on every write made through
+     * this class or announced with markModified()
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Record that data[] was written directly
+     */
+    public void markModified() {
+        version.incrementAndGet();
+    }
+
+    public void assignRandom() {
+        assignRandom(RandomFill.nextSeed());
+    }
+
+    /**
+     * Parallel seeded fill; same values as Matrix.assignRandom(seed)
+     */
+    public void assignRandom(long seed) {
+        RandomFill.fill(row, seed, (i, random) -> {
+            int base = i * stride;
+            for (int j = 0; j < col; ++j) {
+                data[base + j] = random.nextDouble(1000);
+            }
+        });
+        version.incrementAndGet();
+    }
+
+    /**
+     * Copy back into a jagged array, for callers that still expect double[][]
+     */
+    public double[][] toArray() {
+        double[][] result = new double[row][col];
+        for (int i = 0; i < row; i++) {
+            System.arraycopy(data, i * stride, result[i], 0, col);
+        }
+        return result;
+    }
+
+    /**
+     * Zero every element, e.g. before reusing a leased result as an
+     * accumulator
+     */
+    public void clear() {
+        Arrays.fill(data, 0.0);
+        version.incrementAndGet();
+    }
+
+    public Matrix toMatrix() {
+        Matrix result = new Matrix(row, col);
+        for (int i = 0; i < row; i++) {
+            System.arraycopy(data, i * stride, result.matrix[i], 0, col);
+        }
+        return result;
+    }
+
+    /**
+     * Blocked transpose, used to turn B into a row-per-column layout
+     */
+    public FlatMatrix transpose() {
+        FlatMatrix transposed = new FlatMatrix(col, row);
+        final int blockSize = 32;
+        for (int i0 = 0; i0 < row; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, row);
+            for (int j0 = 0; j0 < col; j0 += blockSize) {
+                int jLimit = Math.min(j0 + blockSize, col);
+                for (int i = i0; i < iLimit; i++) {
+                    int src = i * stride;
+                    for (int j = j0; j < jLimit; j++) {
+                        transposed.data[j * transposed.stride + i] = data[src + j];
+                    }
+                }
+            }
+        }
+        return transposed;
+    }
+
+    public FlatMatrix multiplication(FlatMatrix a) {
+        if (this.col != a.row) {return null;}
+        FlatMatrix result = new FlatMatrix(this.row, a.col);
+        multiplyRows(this, a, result, 0, this.row);
+        return result;
+    }
+
+    public FlatMatrix multiplicationBlocked(FlatMatrix a, int blockSize) {
+        if (this.col != a.row) {return null;}
+        FlatMatrix result = new FlatMatrix(this.row, a.col);
+        multiplyRowsBlocked(this, a, result, 0, this.row, blockSize);
+        return result;
+    }
+
+    /**
+     * C = A * B into an existing result; C is overwritten and nothing is
+     * allocated
+     */
+    public static void multiplyInto(FlatMatrix A, FlatMatrix B, FlatMatrix C) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        C.clear();
+        multiplyRows(A, B, C, 0, A.row);
+        C.markModified();
+    }
+
+    /**
+     * C[startRow..endRow) += A * B using the i-k-j order: the innermost loop
+     * streams one row of B into one row of C, both unit stride
+     */
+    public static void multiplyRows(FlatMatrix A, FlatMatrix B, FlatMatrix C, int startRow, int endRow) {
+        final double[] a = A.data, b = B.data, c = C.data;
+        final int n = B.col;
+        final int inner = A.col;
+
+        for (int i = startRow; i < endRow; i++) {
+            int aBase = i * A.stride;
+            int cBase = i * C.stride;
+            for (int k = 0; k < inner; k++) {
+                double aik = a[aBase + k];
+                int bBase = k * B.stride;
+                for (int j = 0; j < n; j++) {
+                    c[cBase + j] += aik * b[bBase + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache-blocked variant of multiplyRows; each tile keeps the i-k-j order
+     */
+    public static void multiplyRowsBlocked(FlatMatrix A, FlatMatrix B, FlatMatrix C,
+            int startRow, int endRow, int blockSize) {
+        final double[] a = A.data, b = B.data, c = C.data;
+        final int n = B.col;
+        final int inner = A.col;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+
+            for (int k0 = 0; k0 < inner; k0 += blockSize) {
+                int kLimit = Math.min(k0 + blockSize, inner);
+
+                for (int j0 = 0; j0 < n; j0 += blockSize) {
+                    int jLimit = Math.min(j0 + blockSize, n);
+
+                    for (int i = i0; i < iLimit; i++) {
+                        int aBase = i * A.stride;
+                        int cBase = i * C.stride;
+                        for (int k = k0; k < kLimit; k++) {
+                            double aik = a[aBase + k];
+                            int bBase = k * B.stride;
+                            for (int j = j0; j < jLimit; j++) {
+                                c[cBase + j] += aik * b[bBase + j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C[startRow..endRow) += A * B where Bt is B already transposed, so every
+     * element of C is a dot product of two contiguous rows
+     */
+    public static void multiplyRowsTransposed(FlatMatrix A, FlatMatrix Bt, FlatMatrix C,
+            int startRow, int endRow, int blockSize) {
+        final double[] a = A.data, bt = Bt.data, c = C.data;
+        final int n = Bt.row;
+        final int inner = A.col;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+
+            for (int j0 = 0; j0 < n; j0 += blockSize) {
+                int jLimit = Math.min(j0 + blockSize, n);
+
+                for (int k0 = 0; k0 < inner; k0 += blockSize) {
+                    int kLimit = Math.min(k0 + blockSize, inner);
+
+                    for (int i = i0; i < iLimit; i++) {
+                        int aBase = i * A.stride;
+                        int cBase = i * C.stride;
+                        for (int j = j0; j < jLimit; j++) {
+                            int bBase = j * Bt.stride;
+                            double sum = c[cBase + j];
+                            for (int kk = k0; kk < kLimit; kk++) {
+                                sum += a[aBase + kk] * bt[bBase + kk];
+                            }
+                            c[cBase + j] = sum;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("FlatMatrix [").append(row).append("x").append(col).append("]\n");
+
+        for (int i = 0; i < row; i++) {
+            for (int j = 0; j < col; j++) {
+                sb.append(String.format("%.2f", get(i, j))).append(" ");
+            }
+            sb.append("\n");
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,227 @@
+package Configuration;
+
+import java.util.Arrays;
+
+/**
+ * Single-precision counterpart of FlatMatrix: row-major float[] storage with
+ * a row stride. Each element is half the size of a double, so the kernels
+ * move half the bytes through the memory hierarchy.
+ *
+ * Every kernel takes an accumulateDouble flag. When set, partial sums are
+ * kept in double and rounded to float once per output element, which keeps
+ * the error close to a single rounding even for long inner dimensions.
+ */
+public class FloatMatrix {
+    public final int row, col;
+    public final int stride;
+    public final float[] data;
+
+    public FloatMatrix(int row, int column) {
+        this.row = row;
+        this.col = column;
+        this.stride = column;
+        this.data = new float[Math.multiplyExact(row, column)];
+    }
+
+    public static FloatMatrix from(double[][] matrix) {
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        FloatMatrix result = new FloatMatrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            int base = i * result.stride;
+            for (int j = 0; j < cols; j++) {
+                result.data[base + j] = (float) matrix[i][j];
+            }
+        }
+        return result;
+    }
+
+    public static FloatMatrix from(FlatMatrix matrix) {
+        FloatMatrix result = new FloatMatrix(matrix.row, matrix.col);
+        for (int i = 0; i < matrix.row; i++) {
+            int src = i * matrix.stride;
+            int dst = i * result.stride;
+            for (int j = 0; j < matrix.col; j++) {
+                result.data[dst + j] = (float) matrix.data[src + j];
+            }
+        }
+        return result;
+    }
+
+    public float get(int i, int j) {
+        return data[i * stride + j];
+    }
+
+    public void set(int i, int j, float value) {
+        data[i * stride + j] = value;
+    }
+
+    public void assignRandom() {
+        assignRandom(RandomFill.nextSeed());
+    }
+
+    /**
+     * Parallel seeded fill; same values, rounded to float, as
+     * FlatMatrix.assignRandom(seed)
+     */
+    public void assignRandom(long seed) {
+        RandomFill.fill(row, seed, (i, random) -> {
+            int base = i * stride;
+            for (int j = 0; j < col; ++j) {
+                data[base + j] = (float) random.nextDouble(1000);
+            }
+        });
+    }
+
+    public FlatMatrix toFlat() {
+        FlatMatrix result = new FlatMatrix(row, col);
+        for (int i = 0; i < row; i++) {
+            int src = i * stride;
+            int dst = i * result.stride;
+            for (int j = 0; j < col; j++) {
+                result.data[dst + j] = data[src + j];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Largest |this - reference| / max(|reference|, 1) over all elements
+     */
+    public double maxRelativeError(FlatMatrix reference) {
+        double maxError = 0;
+        for (int i = 0; i < row; i++) {
+            for (int j = 0; j < col; j++) {
+                double expected = reference.get(i, j);
+                double error = Math.abs(get(i, j) - expected) / Math.max(Math.abs(expected), 1.0);
+                maxError = Math.max(maxError, error);
+            }
+        }
+        return maxError;
+    }
+
+    public FloatMatrix multiplication(FloatMatrix a, boolean accumulateDouble) {
+        if (this.col != a.row) {return null;}
+        FloatMatrix result = new FloatMatrix(this.row, a.col);
+        multiplyRows(this, a, result, 0, this.row, accumulateDouble);
+        return result;
+    }
+
+    /**
+     * C[startRow..endRow) = A * B in i-k-j order. C rows are overwritten.
+     */
+    public static void multiplyRows(FloatMatrix A, FloatMatrix B, FloatMatrix C,
+            int startRow, int endRow, boolean accumulateDouble) {
+        final float[] a = A.data, b = B.data, c = C.data;
+        final int n = B.col;
+        final int inner = A.col;
+
+        if (accumulateDouble) {
+            double[] acc = new double[n];
+            for (int i = startRow; i < endRow; i++) {
+                Arrays.fill(acc, 0.0);
+                int aBase = i * A.stride;
+                for (int k = 0; k < inner; k++) {
+                    double aik = a[aBase + k];
+                    int bBase = k * B.stride;
+                    for (int j = 0; j < n; j++) {
+                        acc[j] += aik * b[bBase + j];
+                    }
+                }
+                int cBase = i * C.stride;
+                for (int j = 0; j < n; j++) {
+                    c[cBase + j] = (float) acc[j];
+                }
+            }
+        } else {
+            for (int i = startRow; i < endRow; i++) {
+                int aBase = i * A.stride;
+                int cBase = i * C.stride;
+                Arrays.fill(c, cBase, cBase + n, 0f);
+                for (int k = 0; k < inner; k++) {
+                    float aik = a[aBase + k];
+                    int bBase = k * B.stride;
+                    for (int j = 0; j < n; j++) {
+                        c[cBase + j] += aik * b[bBase + j];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cache-blocked version of multiplyRows. With accumulateDouble each row
+     * block is accumulated in a double scratch panel and rounded once after
+     * the last k-block.
+     */
+    public static void multiplyRowsBlocked(FloatMatrix A, FloatMatrix B, FloatMatrix C,
+            int startRow, int endRow, int blockSize, boolean accumulateDouble) {
+        multiplyRowsBlocked(A, B, C, startRow, endRow, blockSize,
+                accumulateDouble ? new double[blockSize * B.col] : null);
+    }
+
+    /**
+     * multiplyRowsBlocked with a caller-supplied double panel of at least
+     * blockSize * B.col elements; a null panel accumulates in float
+     */
+    public static void multiplyRowsBlocked(FloatMatrix A, FloatMatrix B, FloatMatrix C,
+            int startRow, int endRow, int blockSize, double[] acc) {
+        final float[] a = A.data, b = B.data, c = C.data;
+        final int n = B.col;
+        final int inner = A.col;
+        final boolean accumulateDouble = acc != null;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+
+            if (accumulateDouble) {
+                Arrays.fill(acc, 0.0);
+            } else {
+                for (int i = i0; i < iLimit; i++) {
+                    Arrays.fill(c, i * C.stride, i * C.stride + n, 0f);
+                }
+            }
+
+            for (int k0 = 0; k0 < inner; k0 += blockSize) {
+                int kLimit = Math.min(k0 + blockSize, inner);
+
+                for (int j0 = 0; j0 < n; j0 += blockSize) {
+                    int jLimit = Math.min(j0 + blockSize, n);
+
+                    for (int i = i0; i < iLimit; i++) {
+                        int aBase = i * A.stride;
+                        if (accumulateDouble) {
+                            int accBase = (i - i0) * n;
+                            for (int k = k0; k < kLimit; k++) {
+                                double aik = a[aBase + k];
+                                int bBase = k * B.stride;
+                                for (int j = j0; j < jLimit; j++) {
+                                    acc[accBase + j] += aik * b[bBase + j];
+                                }
+                            }
+                        } else {
+                            int cBase = i * C.stride;
+                            for (int k = k0; k < kLimit; k++) {
+                                float aik = a[aBase + k];
+                                int bBase = k * B.stride;
+                                for (int j = j0; j < jLimit; j++) {
+                                    c[cBase + j] += aik * b[bBase + j];
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (accumulateDouble) {
+                for (int i = i0; i < iLimit; i++) {
+                    int accBase = (i - i0) * n;
+                    int cBase = i * C.stride;
+                    for (int j = 0; j < n; j++) {
+                        c[cBase + j] = (float) acc[accBase + j];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package Configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of the leaf kernels every row-range driver can run, looked up by
+ * name so a kernel can be chosen at runtime instead of being compiled into
+ * a task class.
+ *
+ * The built-in kernels are registered in this order:
+ * - ijk: textbook triple loop over B as given
+ * - ikj: row-times-row updates, unit stride on B and C
+ * - blocked: cache-blocked i-j-k tiles over B as given
+ * - transposed: dot products of rows of A and of B transposed
+ * - blocked-transposed: cache-blocked tiles over B transposed (the default)
+ * - unrolled: dot products over B transposed with four accumulators
+ * - simd-dot, simd-broadcast: the VectorKernels FMA kernels
+ * - packed, packed-simd: the PackedGemm engine on each band of rows
+ *
+ * selected() returns the kernel named by the matrix.kernel system property,
+ * so -Dmatrix.kernel=ikj switches every engine that honours it without a
+ * rebuild. Further kernels can be added with register().
+ */
+public final class KernelRegistry {
+    /** System property naming the kernel returned by selected() */
+    public static final String KERNEL_PROPERTY = "matrix.kernel";
+
+    /** Body of a built-in kernel, with the MatrixKernel.multiplyTile contract */
+    private interface TileKernel {
+        void multiplyTile(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+                int startCol, int endCol, int blockSize);
+    }
+
+    private static final class Builtin implements MatrixKernel {
+        private final String name;
+        private final boolean transposedB;
+        private final boolean vectorApi;
+        private final TileKernel body;
+
+        Builtin(String name, boolean transposedB, boolean vectorApi, TileKernel body) {
+            this.name = name;
+            this.transposedB = transposedB;
+            this.vectorApi = vectorApi;
+            this.body = body;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public boolean transposedB() {
+            return transposedB;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return !vectorApi || isVectorApiAvailable();
+        }
+
+        @Override
+        public void multiplyTile(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+                int startCol, int endCol, int blockSize) {
+            body.multiplyTile(A, B, C, startRow, endRow, startCol, endCol, blockSize);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    public static final MatrixKernel IJK = new Builtin("ijk", false, false, KernelRegistry::multiplyIjk);
+    public static final MatrixKernel IKJ = new Builtin("ikj", false, false, KernelRegistry::multiplyIkj);
+    public static final MatrixKernel BLOCKED = new Builtin("blocked", false, false, KernelRegistry::multiplyBlocked);
+    public static final MatrixKernel TRANSPOSED = new Builtin("transposed", true, false, KernelRegistry::multiplyTransposed);
+    public static final MatrixKernel BLOCKED_TRANSPOSED = new Builtin("blocked-transposed", true, false,
+            KernelRegistry::multiplyBlockedTransposed);
+    public static final MatrixKernel UNROLLED = new Builtin("unrolled", true, false, KernelRegistry::multiplyUnrolled);
+    // The Vector API kernels are wrapped in lambdas so VectorKernels is only
+    // loaded when one of them actually runs
+    public static final MatrixKernel SIMD_DOT = new Builtin("simd-dot", true, true,
+            (A, B, C, startRow, endRow, startCol, endCol, blockSize) ->
+                    VectorKernels.multiplyTileDot(A, B, C, startRow, endRow, startCol, endCol, blockSize));
+    public static final MatrixKernel SIMD_BROADCAST = new Builtin("simd-broadcast", false, true,
+            (A, B, C, startRow, endRow, startCol, endCol, blockSize) ->
+                    VectorKernels.multiplyTileBroadcast(A, B, C, startRow, endRow, startCol, endCol, blockSize));
+    // The packed kernels pack the B strip of every tile into per-thread
+    // buffers; see PackedGemm.multiplyTile for what that costs small tiles
+    public static final MatrixKernel PACKED = new Builtin("packed", false, false,
+            (A, B, C, startRow, endRow, startCol, endCol, blockSize) ->
+                    PackedGemm.multiplyTile(A, B, C, startRow, endRow, startCol, endCol, PackedGemm.Blocking.DEFAULT, false));
+    public static final MatrixKernel PACKED_SIMD = new Builtin("packed-simd", false, true,
+            (A, B, C, startRow, endRow, startCol, endCol, blockSize) ->
+                    PackedGemm.multiplyTile(A, B, C, startRow, endRow, startCol, endCol, PackedGemm.Blocking.DEFAULT, true));
+
+    /** Kernel used when matrix.kernel is not set */
+    public static final MatrixKernel DEFAULT = BLOCKED_TRANSPOSED;
+
+    private static final Map<String, MatrixKernel> KERNELS = new LinkedHashMap<>();
+
+    static {
+        for (MatrixKernel kernel : new MatrixKernel[]{IJK, IKJ, BLOCKED, TRANSPOSED, BLOCKED_TRANSPOSED,
+                UNROLLED, SIMD_DOT, SIMD_BROADCAST, PACKED, PACKED_SIMD}) {
+            register(kernel);
+        }
+    }
+
+    private KernelRegistry() {
+    }
+
+    /**
+     * Add a kernel under its name
+     *
+     * @throws IllegalArgumentException if another kernel has the same name
+     */
+    public static synchronized void register(MatrixKernel kernel) {
+        if (KERNELS.putIfAbsent(kernel.name(), kernel) != null) {
+            throw new IllegalArgumentException("A kernel named " + kernel.name() + " is already registered");
+        }
+    }
+
+    /**
+     * Kernel registered under name
+     *
+     * @throws IllegalArgumentException if no kernel has that name
+     */
+    public static synchronized MatrixKernel get(String name) {
+        MatrixKernel kernel = KERNELS.get(name);
+        if (kernel == null) {
+            throw new IllegalArgumentException("Unknown kernel " + name + ", registered: " + KERNELS.keySet());
+        }
+        return kernel;
+    }
+
+    /**
+     * Kernel registered under name, or null if there is none
+     */
+    public static synchronized MatrixKernel find(String name) {
+        return KERNELS.get(name);
+    }
+
+    /**
+     * Every registered kernel in registration order
+     */
+    public static synchronized List<MatrixKernel> all() {
+        return new ArrayList<>(KERNELS.values());
+    }
+
+    /**
+     * Registered kernels that can run in the current JVM
+     */
+    public static List<MatrixKernel> available() {
+        List<MatrixKernel> kernels = all();
+        kernels.removeIf(kernel -> !kernel.isAvailable());
+        return kernels;
+    }
+
+    /**
+     * Kernel named by the matrix.kernel system property, or DEFAULT
+     */
+    public static MatrixKernel selected() {
+        String name = System.getProperty(KERNEL_PROPERTY);
+        return name == null ? DEFAULT : get(name);
+    }
+
+    /**
+     * Whether the jdk.incubator.vector module is present, i.e. whether the
+     * VectorKernels class can be loaded
+     */
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    private static void multiplyIjk(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize) {
+        final int k = A[0].length;
+
+        for (int i = startRow; i < endRow; i++) {
+            double[] a = A[i];
+            double[] c = C[i];
+            for (int j = startCol; j < endCol; j++) {
+                double sum = 0.0;
+                for (int kk = 0; kk < k; kk++) {
+                    sum += a[kk] * B[kk][j];
+                }
+                c[j] += sum;
+            }
+        }
+    }
+
+    private static void multiplyIkj(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize) {
+        final int k = A[0].length;
+
+        for (int i = startRow; i < endRow; i++) {
+            double[] a = A[i];
+            double[] c = C[i];
+            for (int kk = 0; kk < k; kk++) {
+                double scale = a[kk];
+                double[] b = B[kk];
+                for (int j = startCol; j < endCol; j++) {
+                    c[j] += scale * b[j];
+                }
+            }
+        }
+    }
+
+    private static void multiplyBlocked(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize) {
+        final int k = A[0].length;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+            for (int j0 = startCol; j0 < endCol; j0 += blockSize) {
+                int jLimit = Math.min(j0 + blockSize, endCol);
+                for (int k0 = 0; k0 < k; k0 += blockSize) {
+                    int kLimit = Math.min(k0 + blockSize, k);
+                    for (int i = i0; i < iLimit; i++) {
+                        for (int j = j0; j < jLimit; j++) {
+                            double sum = C[i][j];
+                            for (int kk = k0; kk < kLimit; kk++) {
+                                sum += A[i][kk] * B[kk][j];
+                            }
+                            C[i][j] = sum;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void multiplyTransposed(double[][] A, double[][] Bt, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize) {
+        final int k = A[0].length;
+
+        for (int i = startRow; i < endRow; i++) {
+            double[] a = A[i];
+            double[] c = C[i];
+            for (int j = startCol; j < endCol; j++) {
+                double[] b = Bt[j];
+                double sum = 0.0;
+                for (int kk = 0; kk < k; kk++) {
+                    sum += a[kk] * b[kk];
+                }
+                c[j] += sum;
+            }
+        }
+    }
+
+    private static void multiplyBlockedTransposed(double[][] A, double[][] Bt, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize) {
+        final int k = A[0].length;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+            for (int j0 = startCol; j0 < endCol; j0 += blockSize) {
+                int jLimit = Math.min(j0 + blockSize, endCol);
+                for (int k0 = 0; k0 < k; k0 += blockSize) {
+                    int kLimit = Math.min(k0 + blockSize, k);
+                    for (int i = i0; i < iLimit; i++) {
+                        for (int j = j0; j < jLimit; j++) {
+                            double sum = C[i][j];
+                            for (int kk = k0; kk < kLimit; kk++) {
+                                sum += A[i][kk] * Bt[j][kk];
+                            }
+                            C[i][j] = sum;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void multiplyUnrolled(double[][] A, double[][] Bt, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize) {
+        final int k = A[0].length;
+        final int kLimit = (k / 4) * 4;
+
+        for (int i = startRow; i < endRow; i++) {
+            double[] a = A[i];
+            double[] c = C[i];
+            for (int j = startCol; j < endCol; j++) {
+                double[] b = Bt[j];
+                // Four independent chains so consecutive adds do not wait on each other
+                double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+                for (int kk = 0; kk < kLimit; kk += 4) {
+                    sum0 += a[kk] * b[kk];
+                    sum1 += a[kk + 1] * b[kk + 1];
+                    sum2 += a[kk + 2] * b[kk + 2];
+                    sum3 += a[kk + 3] * b[kk + 3];
+                }
+                for (int kk = kLimit; kk < k; kk++) {
+                    sum0 += a[kk] * b[kk];
+                }
+                c[j] += sum0 + sum1 + sum2 + sum3;
+            }
+        }
+    }
+}
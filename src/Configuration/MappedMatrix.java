@@ -0,0 +1,200 @@
+package Configuration;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Row-major double matrix stored in a file and accessed through memory
+ * mappings, so it can be larger than the heap and only the pages being
+ * touched stay resident.
+ *
+ * A single MappedByteBuffer is limited to 2 GB, so the file is mapped as a
+ * sequence of regions. Each region holds a whole number of rows, which means
+ * a row never straddles two mappings and row/tile copies are one bulk get or
+ * put per row. Elements are stored little-endian so files move between
+ * machines unchanged.
+ */
+public class MappedMatrix implements AutoCloseable {
+    /** Largest region the JDK can map in one MappedByteBuffer, rounded down to whole doubles */
+    public static final long MAX_REGION_BYTES = Integer.MAX_VALUE & ~7L;
+
+    public final int row, col;
+    public final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer[] mappings;
+    private final DoubleBuffer[] regions;
+    private final int rowsPerRegion;
+
+    private MappedMatrix(Path path, int row, int column, long dataOffset, long regionBytes,
+            boolean writable, boolean create) throws IOException {
+        long rowBytes = (long) column * Double.BYTES;
+        if (rowBytes > regionBytes) {
+            throw new IllegalArgumentException("A single row of " + rowBytes + " bytes exceeds the region size " + regionBytes);
+        }
+
+        this.row = row;
+        this.col = column;
+        this.path = path;
+        this.rowsPerRegion = (int) Math.max(1, Math.min(row, regionBytes / Math.max(rowBytes, 1)));
+
+        FileChannel channel = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : writable
+                        ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                        : FileChannel.open(path, StandardOpenOption.READ);
+
+        // Nothing below may leak the channel: a failed write (ENOSPC) or map must close it
+        try {
+            long requiredBytes = dataOffset + rowBytes * row;
+            if (create && requiredBytes > 0) {
+                // Extend the file to its final size so the mappings are backed
+                channel.write(ByteBuffer.allocate(1), requiredBytes - 1);
+            } else if (channel.size() < requiredBytes) {
+                throw new IOException(path + " holds " + channel.size() + " bytes, expected at least " + requiredBytes);
+            }
+
+            int regionCount = row == 0 ? 0 : (row + rowsPerRegion - 1) / rowsPerRegion;
+            this.mappings = new MappedByteBuffer[regionCount];
+            this.regions = new DoubleBuffer[regionCount];
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            for (int r = 0; r < regionCount; r++) {
+                int rowsInRegion = Math.min(rowsPerRegion, row - r * rowsPerRegion);
+                long start = dataOffset + (long) r * rowsPerRegion * rowBytes;
+                mappings[r] = channel.map(mode, start, rowsInRegion * rowBytes);
+                mappings[r].order(ByteOrder.LITTLE_ENDIAN);
+                regions[r] = mappings[r].asDoubleBuffer();
+            }
+        } catch (Throwable t) {
+            try {
+                channel.close();
+            } catch (IOException closeFailure) {
+                t.addSuppressed(closeFailure);
+            }
+            throw t;
+        }
+        this.channel = channel;
+    }
+
+    /**
+     * Create (or truncate) a zero-filled file-backed matrix
+     */
+    public static MappedMatrix create(Path path, int row, int column) throws IOException {
+        return new MappedMatrix(path, row, column, 0, MAX_REGION_BYTES, true, true);
+    }
+
+    /**
+     * Create with a custom region size; mainly useful to exercise the
+     * multi-region path on small matrices
+     */
+    public static MappedMatrix create(Path path, int row, int column, long regionBytes) throws IOException {
+        return new MappedMatrix(path, row, column, 0, regionBytes, true, true);
+    }
+
+    /**
+     * Map an existing file whose elements start dataOffset bytes in
+     */
+    public static MappedMatrix open(Path path, int row, int column, long dataOffset, boolean writable) throws IOException {
+        return new MappedMatrix(path, row, column, dataOffset, MAX_REGION_BYTES, writable, false);
+    }
+
+    public int regionCount() {
+        return regions.length;
+    }
+
+    public double get(int i, int j) {
+        return regions[i / rowsPerRegion].get((i % rowsPerRegion) * col + j);
+    }
+
+    public void set(int i, int j, double value) {
+        regions[i / rowsPerRegion].put((i % rowsPerRegion) * col + j, value);
+    }
+
+    /**
+     * Copy columns [c0, c0 + length) of row i into dst[offset ..]
+     */
+    public void readRow(int i, int c0, double[] dst, int offset, int length) {
+        regions[i / rowsPerRegion].get((i % rowsPerRegion) * col + c0, dst, offset, length);
+    }
+
+    /**
+     * Copy src[offset .. offset + length) into columns [c0, c0 + length) of row i
+     */
+    public void writeRow(int i, int c0, double[] src, int offset, int length) {
+        regions[i / rowsPerRegion].put((i % rowsPerRegion) * col + c0, src, offset, length);
+    }
+
+    /**
+     * Copy the tile [r0, r1) x [c0, c1) into a dense row-major buffer whose
+     * rows are tileStride apart
+     */
+    public void readTile(int r0, int r1, int c0, int c1, double[] tile, int tileStride) {
+        for (int i = r0; i < r1; i++) {
+            readRow(i, c0, tile, (i - r0) * tileStride, c1 - c0);
+        }
+    }
+
+    public void writeTile(int r0, int r1, int c0, int c1, double[] tile, int tileStride) {
+        for (int i = r0; i < r1; i++) {
+            writeRow(i, c0, tile, (i - r0) * tileStride, c1 - c0);
+        }
+    }
+
+    public void assignRandom() {
+        assignRandom(RandomFill.nextSeed());
+    }
+
+    /**
+     * Parallel seeded fill with the same values as
+     * FlatMatrix.assignRandom(seed); rows are disjoint ranges of the mapping
+     */
+    public void assignRandom(long seed) {
+        RandomFill.fill(row, seed, (i, random) -> {
+            for (int j = 0; j < col; ++j) {
+                set(i, j, random.nextDouble(1000));
+            }
+        });
+    }
+
+    public static MappedMatrix from(FlatMatrix matrix, Path path) throws IOException {
+        MappedMatrix result = create(path, matrix.row, matrix.col);
+        for (int i = 0; i < matrix.row; i++) {
+            result.writeRow(i, 0, matrix.data, i * matrix.stride, matrix.col);
+        }
+        return result;
+    }
+
+    public FlatMatrix toFlat() {
+        FlatMatrix result = new FlatMatrix(row, col);
+        for (int i = 0; i < row; i++) {
+            readRow(i, 0, result.data, i * result.stride, col);
+        }
+        return result;
+    }
+
+    /**
+     * Write dirty pages back to the file
+     */
+    public void flush() {
+        for (MappedByteBuffer mapping : mappings) {
+            if (!mapping.isReadOnly()) {
+                mapping.force();
+            }
+        }
+    }
+
+    /**
+     * Close the channel. The mappings themselves are released when the
+     * buffers become unreachable; the JDK has no explicit unmap for them.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,34 +1,67 @@
 package Configuration;
 
-import javax.swing.*;
-import java.util.Random;
-
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dense matrix stored as an array of rows. Like FlatMatrix it carries a
+ * modification version for caches of derived data (see OperandCache);
+ * assignRandom() and multiplyInto() bump it, code that writes matrix[][]
+ * directly must call markModified() afterwards.
+ */
 public class Matrix {
+    private static final int PROGRESS_BAND = 64;
+
     public int row, col;
     public double[][] matrix;
-    public JFrame frame;
-    public JProgressBar progressBar;
+    private final AtomicLong version = new AtomicLong();
 
     public Matrix(int row, int column){
         this.row = row;
         this.col = column;
         matrix = new double[row][column];
-        progressBar = new JProgressBar(0, 100);
-        progressBar.setStringPainted(true);
     }
 
     public void assignRandom(){
-        Random random = new Random();
-        for(int i=0; i<row; ++i ){
+        assignRandom(RandomFill.nextSeed());
+    }
+
+    /**
+     * Current modification version; changes on every write made through
+     * this class or announced with markModified()
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Announce a write made directly to matrix[][]
+     */
+    public void markModified() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Parallel fill that yields the same values for a given seed whatever
+     * the thread count
+     */
+    public void assignRandom(long seed){
+        RandomFill.fill(row, seed, (i, random) -> {
+            double[] line = matrix[i];
             for(int j=0; j<col; ++j ){
-                matrix[i][j] = random.nextDouble(1000);
+                line[j] = random.nextDouble(1000);
             }
-        }
+        });
+        version.incrementAndGet();
     }
 
     public Matrix multiplication(Matrix a) {
+        return multiplication(a, ProgressTracker.NONE);
+    }
+
+    public Matrix multiplication(Matrix a, ProgressTracker progress) {
         if (this.col != a.row) {return null;}
         Matrix result = new Matrix(this.row, a.col);
+        progress.begin(this.row);
 
         for (int i = 0; i < this.row; i++) {
             for (int j = 0; j < a.col; j++) {
@@ -39,17 +72,57 @@ public class Matrix {
                 result.matrix[i][j] = sum; // Assign the computed value
             }
 
-            // Update the progress bar
-            int progress = (int) (((double) (i + 1) / this.row) * 100);
-            SwingUtilities.invokeLater(() -> {
-                progressBar.setValue(progress);
-                progressBar.setString("Progress: " + progress + "%");
-            });
+            progress.advance(1);
+        }
+
+        progress.finish();
+        return result;
+    }
+
+    public Matrix multiplication(Matrix a, MatrixKernel kernel) {
+        return multiplication(a, kernel, ProgressTracker.NONE);
+    }
+
+    /**
+     * Sequential multiplication with a pluggable leaf kernel, run over bands
+     * of PROGRESS_BAND rows so progress is still reported
+     */
+    public Matrix multiplication(Matrix a, MatrixKernel kernel, ProgressTracker progress) {
+        if (this.col != a.row) {return null;}
+        Matrix result = new Matrix(this.row, a.col);
+        double[][] b = kernel.transposedB() ? a.transpose().matrix : a.matrix;
+        progress.begin(this.row);
+
+        for (int i = 0; i < this.row; i += PROGRESS_BAND) {
+            int end = Math.min(i + PROGRESS_BAND, this.row);
+            kernel.multiplyRows(this.matrix, b, result.matrix, i, end, MatrixKernel.DEFAULT_BLOCK_SIZE);
+            progress.advance(end - i);
         }
 
+        progress.finish();
         return result;
     }
 
+    /**
+     * C = A * B into an existing result of shape A.row x B.col; every element
+     * of C is overwritten, so a leased or previously used C can be passed
+     */
+    public static void multiplyInto(Matrix A, Matrix B, Matrix C) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        for (int i = 0; i < A.row; i++) {
+            for (int j = 0; j < B.col; j++) {
+                double sum = 0;
+                for (int k = 0; k < A.col; k++) {
+                    sum += A.matrix[i][k] * B.matrix[k][j];
+                }
+                C.matrix[i][j] = sum;
+            }
+        }
+        C.markModified();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -65,8 +138,8 @@ public class Matrix {
         return sb.toString();
     }
 
-    public JProgressBar getProgressBar() {
-        return progressBar;
+    public FlatMatrix toFlat() {
+        return FlatMatrix.from(this);
     }
 
     public Matrix transpose() {
@@ -82,11 +155,16 @@ public class Matrix {
     }
 
     public Matrix multiplicationBlocked(Matrix a, int blockSize) {
+        return multiplicationBlocked(a, blockSize, ProgressTracker.NONE);
+    }
+
+    public Matrix multiplicationBlocked(Matrix a, int blockSize, ProgressTracker progress) {
         if (this.col != a.row) {
             return null;
         }
 
         Matrix result = new Matrix(this.row, a.col);
+        progress.begin(this.row);
 
         for (int i = 0; i < this.row; i += blockSize) {
             for (int j = 0; j < a.col; j += blockSize) {
@@ -104,14 +182,10 @@ public class Matrix {
                 }
             }
 
-            // Update the progress bar
-            int progress = (int) (((double) (i + 1) / this.row) * 100);
-            SwingUtilities.invokeLater(() -> {
-                progressBar.setValue(progress);
-                progressBar.setString("Progress: " + progress + "%");
-            });
+            progress.advance(Math.min(i + blockSize, this.row) - i);
         }
 
+        progress.finish();
         return result;
     }
 }
@@ -0,0 +1,368 @@
+package Configuration;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary matrix file.
+ *
+ * <pre>
+ * offset size field
+ *      0    4 magic 'MTRX'
+ *      4    2 format version (1)
+ *      6    1 dtype (1 = float64, 2 = float32)
+ *      7    1 layout (0 = row-major)
+ *      8    8 rows
+ *     16    8 cols
+ *     24    8 reserved, zero
+ *     32      elements, little-endian, rows * cols * element size bytes
+ * </pre>
+ *
+ * Reads and writes go through a direct ByteBuffer in large chunks and bulk
+ * DoubleBuffer/FloatBuffer transfers, so loading runs at disk bandwidth.
+ * The header is a multiple of 8 bytes, so map() can expose the elements of
+ * a float64 file as a MappedMatrix without copying them at all.
+ */
+public class MatrixFile {
+    public static final int MAGIC = 0x5852544D; // "MTRX" read little-endian
+    public static final short VERSION = 1;
+    public static final byte DTYPE_FLOAT64 = 1;
+    public static final byte DTYPE_FLOAT32 = 2;
+    public static final byte LAYOUT_ROW_MAJOR = 0;
+    public static final int HEADER_BYTES = 32;
+
+    /** System property naming a directory where benchmark inputs are kept between runs */
+    public static final String INPUT_DIR_PROPERTY = "matrix.input.dir";
+
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    /**
+     * Parsed file header
+     */
+    public static class Header {
+        public final byte dtype;
+        public final int rows, cols;
+
+        Header(byte dtype, int rows, int cols) {
+            this.dtype = dtype;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        public int elementBytes() {
+            return dtype == DTYPE_FLOAT64 ? Double.BYTES : Float.BYTES;
+        }
+    }
+
+    public static Header readHeader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readHeader(channel, path);
+        }
+    }
+
+    public static void write(Path path, FlatMatrix matrix) throws IOException {
+        try (FileChannel channel = openForWrite(path)) {
+            ByteBuffer buffer = newBuffer();
+            putHeader(buffer, DTYPE_FLOAT64, matrix.row, matrix.col);
+            for (int i = 0; i < matrix.row; i++) {
+                writeDoubles(channel, buffer, matrix.data, i * matrix.stride, matrix.col);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    public static void write(Path path, double[][] matrix) throws IOException {
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        try (FileChannel channel = openForWrite(path)) {
+            ByteBuffer buffer = newBuffer();
+            putHeader(buffer, DTYPE_FLOAT64, rows, cols);
+            for (double[] row : matrix) {
+                writeDoubles(channel, buffer, row, 0, cols);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    public static void write(Path path, Matrix matrix) throws IOException {
+        write(path, matrix.matrix);
+    }
+
+    public static void write(Path path, FloatMatrix matrix) throws IOException {
+        try (FileChannel channel = openForWrite(path)) {
+            ByteBuffer buffer = newBuffer();
+            putHeader(buffer, DTYPE_FLOAT32, matrix.row, matrix.col);
+            for (int i = 0; i < matrix.row; i++) {
+                writeFloats(channel, buffer, matrix.data, i * matrix.stride, matrix.col);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    public static FlatMatrix readFlat(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            requireDtype(header, DTYPE_FLOAT64, path);
+            FlatMatrix result = new FlatMatrix(header.rows, header.cols);
+            ByteBuffer buffer = newBuffer().flip();
+            readDoubles(channel, buffer, result.data, 0, result.data.length);
+            return result;
+        }
+    }
+
+    public static double[][] readArray(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            requireDtype(header, DTYPE_FLOAT64, path);
+            double[][] result = new double[header.rows][header.cols];
+            ByteBuffer buffer = newBuffer().flip();
+            for (double[] row : result) {
+                readDoubles(channel, buffer, row, 0, header.cols);
+            }
+            return result;
+        }
+    }
+
+    public static Matrix readMatrix(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            requireDtype(header, DTYPE_FLOAT64, path);
+            Matrix result = new Matrix(header.rows, header.cols);
+            ByteBuffer buffer = newBuffer().flip();
+            for (double[] row : result.matrix) {
+                readDoubles(channel, buffer, row, 0, header.cols);
+            }
+            return result;
+        }
+    }
+
+    public static FloatMatrix readFloat(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = readHeader(channel, path);
+            requireDtype(header, DTYPE_FLOAT32, path);
+            FloatMatrix result = new FloatMatrix(header.rows, header.cols);
+            ByteBuffer buffer = newBuffer().flip();
+            readFloats(channel, buffer, result.data, 0, result.data.length);
+            return result;
+        }
+    }
+
+    /**
+     * Map the elements of a float64 file in place; nothing is copied onto the heap
+     */
+    public static MappedMatrix map(Path path, boolean writable) throws IOException {
+        Header header = readHeader(path);
+        requireDtype(header, DTYPE_FLOAT64, path);
+        return MappedMatrix.open(path, header.rows, header.cols, HEADER_BYTES, writable);
+    }
+
+    /**
+     * Benchmark input named name, reused across runs when the
+     * matrix.input.dir system property is set. Without the property this is
+     * just a freshly randomised matrix, as before.
+     */
+    public static Matrix inputMatrix(String name, int rows, int cols) {
+        Path path = inputPath(name, rows, cols);
+        if (path != null && Files.exists(path)) {
+            try {
+                return readMatrix(path);
+            } catch (IOException e) {
+                System.err.println("Error reading input " + path + ": " + e.getMessage());
+            }
+        }
+
+        Matrix matrix = new Matrix(rows, cols);
+        matrix.assignRandom();
+        if (path != null) {
+            try {
+                write(path, matrix);
+            } catch (IOException e) {
+                System.err.println("Error saving input " + path + ": " + e.getMessage());
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * double[][] flavour of inputMatrix for the ForkJoin runners
+     */
+    public static double[][] inputArray(String name, int rows, int cols) {
+        Path path = inputPath(name, rows, cols);
+        if (path != null && Files.exists(path)) {
+            try {
+                return readArray(path);
+            } catch (IOException e) {
+                System.err.println("Error reading input " + path + ": " + e.getMessage());
+            }
+        }
+
+        Matrix matrix = new Matrix(rows, cols);
+        matrix.assignRandom();
+        if (path != null) {
+            try {
+                write(path, matrix);
+            } catch (IOException e) {
+                System.err.println("Error saving input " + path + ": " + e.getMessage());
+            }
+        }
+        return matrix.matrix;
+    }
+
+    private static Path inputPath(String name, int rows, int cols) {
+        String dir = System.getProperty(INPUT_DIR_PROPERTY);
+        if (dir == null || dir.isEmpty()) {
+            return null;
+        }
+        try {
+            Files.createDirectories(Paths.get(dir));
+        } catch (IOException e) {
+            System.err.println("Error creating input directory " + dir + ": " + e.getMessage());
+            return null;
+        }
+        return Paths.get(dir, name + "-" + rows + "x" + cols + ".mtx");
+    }
+
+    private static FileChannel openForWrite(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    private static ByteBuffer newBuffer() {
+        return ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putHeader(ByteBuffer buffer, byte dtype, int rows, int cols) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.put(dtype);
+        buffer.put(LAYOUT_ROW_MAJOR);
+        buffer.putLong(rows);
+        buffer.putLong(cols);
+        buffer.putLong(0L);
+    }
+
+    private static Header readHeader(FileChannel channel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header) < 0) {
+                throw new IOException(path + " is too short to be a matrix file");
+            }
+        }
+        header.flip();
+
+        if (header.getInt() != MAGIC) {
+            throw new IOException(path + " is not a matrix file (bad magic)");
+        }
+        short version = header.getShort();
+        if (version != VERSION) {
+            throw new IOException(path + " has unsupported format version " + version);
+        }
+        byte dtype = header.get();
+        if (dtype != DTYPE_FLOAT64 && dtype != DTYPE_FLOAT32) {
+            throw new IOException(path + " has unknown dtype " + dtype);
+        }
+        byte layout = header.get();
+        if (layout != LAYOUT_ROW_MAJOR) {
+            throw new IOException(path + " has unsupported layout " + layout);
+        }
+        long rows = header.getLong();
+        long cols = header.getLong();
+        if (rows < 0 || cols < 0 || rows > Integer.MAX_VALUE || cols > Integer.MAX_VALUE) {
+            throw new IOException(path + " has invalid shape " + rows + "x" + cols);
+        }
+
+        Header result = new Header(dtype, (int) rows, (int) cols);
+        long expected = HEADER_BYTES + rows * cols * result.elementBytes();
+        if (channel.size() < expected) {
+            throw new IOException(path + " holds " + channel.size() + " bytes, expected " + expected);
+        }
+        return result;
+    }
+
+    private static void requireDtype(Header header, byte dtype, Path path) throws IOException {
+        if (header.dtype != dtype) {
+            throw new IOException(path + " holds dtype " + header.dtype + ", expected " + dtype);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer buffer, int minBytes) throws IOException {
+        buffer.compact();
+        while (buffer.position() < minBytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Matrix file ended early");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buffer, double[] src, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            if (buffer.remaining() < Double.BYTES) {
+                drain(channel, buffer);
+            }
+            int n = Math.min(length, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().put(src, offset, n);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static void writeFloats(FileChannel channel, ByteBuffer buffer, float[] src, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            if (buffer.remaining() < Float.BYTES) {
+                drain(channel, buffer);
+            }
+            int n = Math.min(length, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().put(src, offset, n);
+            buffer.position(buffer.position() + n * Float.BYTES);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static void readDoubles(FileChannel channel, ByteBuffer buffer, double[] dst, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            if (buffer.remaining() < Double.BYTES) {
+                fill(channel, buffer, Double.BYTES);
+            }
+            int n = Math.min(length, buffer.remaining() / Double.BYTES);
+            buffer.asDoubleBuffer().get(dst, offset, n);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static void readFloats(FileChannel channel, ByteBuffer buffer, float[] dst, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            if (buffer.remaining() < Float.BYTES) {
+                fill(channel, buffer, Float.BYTES);
+            }
+            int n = Math.min(length, buffer.remaining() / Float.BYTES);
+            buffer.asFloatBuffer().get(dst, offset, n);
+            buffer.position(buffer.position() + n * Float.BYTES);
+            offset += n;
+            length -= n;
+        }
+    }
+}
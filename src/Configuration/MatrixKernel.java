@@ -0,0 +1,60 @@
+package Configuration;
+
+/**
+ * Leaf kernel of the parallel engines: multiplies a tile of rows of A by a
+ * range of columns of B and accumulates the tile into C. The sequential,
+ * thread-pool and ForkJoin drivers only split the product into row bands or
+ * 2D tiles and hand each one to a kernel, so any kernel registered with
+ * KernelRegistry runs under every driver.
+ *
+ * A kernel declares the layout it reads B in. When transposedB() is true
+ * the driver passes B transposed (n x k, one row per column of the
+ * product), otherwise B as given (k x n). Either way the driver prepares B
+ * once per multiplication, not once per band or tile.
+ */
+public interface MatrixKernel {
+    /** Block size used by drivers that have no size heuristic of their own */
+    int DEFAULT_BLOCK_SIZE = 32;
+
+    /**
+     * Unique name the kernel is registered and selected by
+     */
+    String name();
+
+    /**
+     * Whether B must be passed transposed
+     */
+    boolean transposedB();
+
+    /**
+     * Whether this kernel can run in the current JVM
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * C[startRow..endRow) += A[startRow..endRow) * B over every column of C
+     *
+     * @param A First matrix, m x k
+     * @param B Second matrix, k x n, or n x k when transposedB() is true
+     * @param C Result matrix, m x n, accumulated into
+     * @param startRow First row of the band
+     * @param endRow Last row of the band (exclusive)
+     * @param blockSize Cache block size; kernels that do not block ignore it
+     */
+    default void multiplyRows(double[][] A, double[][] B, double[][] C, int startRow, int endRow, int blockSize) {
+        multiplyTile(A, B, C, startRow, endRow, 0, C[0].length, blockSize);
+    }
+
+    /**
+     * Tile [startRow, endRow) x [startCol, endCol) of C += the matching rows
+     * of A times the matching columns of B. Tiles of one product may run
+     * concurrently as long as they do not overlap
+     *
+     * @param startCol First column of the tile
+     * @param endCol Last column of the tile (exclusive)
+     */
+    void multiplyTile(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, int blockSize);
+}
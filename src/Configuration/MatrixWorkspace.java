@@ -0,0 +1,142 @@
+package Configuration;
+
+import java.util.ArrayList;
+
+/**
+ * Shape-keyed pool of result and scratch buffers for repeated
+ * multiplications of same-shaped operands.
+ *
+ * lease*() hands out a buffer of exactly the requested shape, reusing one
+ * that was released earlier when available and allocating only on a miss.
+ * Leased buffers are NOT cleared; every multiplyInto() engine overwrites
+ * (or zeroes) what it writes. Once every shape in a loop has been leased and
+ * released once, further lease/release pairs allocate nothing.
+ *
+ * All methods are synchronized so ForkJoin leaves may lease scratch from a
+ * shared workspace. Shapes are matched by a linear scan of a short list
+ * rather than a hash map, so lookups never box a key.
+ */
+public class MatrixWorkspace {
+    private static final int ARRAY = 0, MATRIX = 1, FLAT = 2, FLOAT = 3, SCRATCH = 4;
+
+    /** Free buffers of one kind and shape, kept as a growable stack */
+    private static final class Slot {
+        final int kind, rows, cols;
+        Object[] free = new Object[4];
+        int size;
+
+        Slot(int kind, int rows, int cols) {
+            this.kind = kind;
+            this.rows = rows;
+            this.cols = cols;
+        }
+    }
+
+    private final ArrayList<Slot> slots = new ArrayList<>();
+    private long leases, misses;
+
+    public synchronized double[][] leaseArray(int rows, int cols) {
+        Object buffer = take(ARRAY, rows, cols);
+        return buffer != null ? (double[][]) buffer : new double[rows][cols];
+    }
+
+    public synchronized void release(double[][] buffer) {
+        put(ARRAY, buffer.length, buffer.length == 0 ? 0 : buffer[0].length, buffer);
+    }
+
+    public synchronized Matrix leaseMatrix(int rows, int cols) {
+        Object buffer = take(MATRIX, rows, cols);
+        return buffer != null ? (Matrix) buffer : new Matrix(rows, cols);
+    }
+
+    public synchronized void release(Matrix buffer) {
+        put(MATRIX, buffer.row, buffer.col, buffer);
+    }
+
+    public synchronized FlatMatrix leaseFlat(int rows, int cols) {
+        Object buffer = take(FLAT, rows, cols);
+        return buffer != null ? (FlatMatrix) buffer : new FlatMatrix(rows, cols);
+    }
+
+    public synchronized void release(FlatMatrix buffer) {
+        put(FLAT, buffer.row, buffer.col, buffer);
+    }
+
+    public synchronized FloatMatrix leaseFloat(int rows, int cols) {
+        Object buffer = take(FLOAT, rows, cols);
+        return buffer != null ? (FloatMatrix) buffer : new FloatMatrix(rows, cols);
+    }
+
+    public synchronized void release(FloatMatrix buffer) {
+        put(FLOAT, buffer.row, buffer.col, buffer);
+    }
+
+    /**
+     * One-dimensional scratch of exactly length elements
+     */
+    public synchronized double[] leaseScratch(int length) {
+        Object buffer = take(SCRATCH, length, 0);
+        return buffer != null ? (double[]) buffer : new double[length];
+    }
+
+    public synchronized void release(double[] buffer) {
+        put(SCRATCH, buffer.length, 0, buffer);
+    }
+
+    /**
+     * Number of lease calls so far
+     */
+    public synchronized long leases() {
+        return leases;
+    }
+
+    /**
+     * Number of leases that had to allocate a new buffer
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Drop every pooled buffer so the GC can reclaim them
+     */
+    public synchronized void clear() {
+        slots.clear();
+    }
+
+    private Object take(int kind, int rows, int cols) {
+        leases++;
+        Slot slot = find(kind, rows, cols);
+        if (slot == null || slot.size == 0) {
+            misses++;
+            return null;
+        }
+        Object buffer = slot.free[--slot.size];
+        slot.free[slot.size] = null;
+        return buffer;
+    }
+
+    private void put(int kind, int rows, int cols, Object buffer) {
+        Slot slot = find(kind, rows, cols);
+        if (slot == null) {
+            slot = new Slot(kind, rows, cols);
+            slots.add(slot);
+        }
+        if (slot.size == slot.free.length) {
+            Object[] grown = new Object[slot.size * 2];
+            System.arraycopy(slot.free, 0, grown, 0, slot.size);
+            slot.free = grown;
+        }
+        slot.free[slot.size++] = buffer;
+    }
+
+    private Slot find(int kind, int rows, int cols) {
+        for (int s = 0; s < slots.size(); s++) {
+            Slot slot = slots.get(s);
+            if (slot.kind == kind && slot.rows == rows && slot.cols == cols) {
+                return slot;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,183 @@
+package Configuration;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Dense row-major matrix stored outside the Java heap in a MemorySegment.
+ * The GC never scans or copies the elements, and the size is bounded by
+ * native memory rather than -Xmx.
+ *
+ * Lifetime is explicit: a matrix created without an Arena owns a shared
+ * arena and frees it on close(); a matrix created inside a caller's Arena
+ * is freed when that arena is closed. Segments are allocated from shared
+ * arenas so ForkJoin workers can read and write them.
+ */
+public class OffHeapMatrix implements AutoCloseable {
+    public static final ValueLayout.OfDouble ELEMENT = ValueLayout.JAVA_DOUBLE;
+    private static final long ALIGNMENT = 64; // one cache line
+
+    public final int row, col;
+    public final long stride;
+    public final MemorySegment segment;
+    private final Arena ownedArena;
+
+    /**
+     * Allocate a zeroed matrix in its own shared arena; call close() to free it
+     */
+    public OffHeapMatrix(int row, int column) {
+        this(row, column, Arena.ofShared(), true);
+    }
+
+    /**
+     * Allocate a zeroed matrix inside the given arena, which owns its lifetime
+     */
+    public OffHeapMatrix(int row, int column, Arena arena) {
+        this(row, column, arena, false);
+    }
+
+    private OffHeapMatrix(int row, int column, Arena arena, boolean owned) {
+        this.row = row;
+        this.col = column;
+        this.stride = column;
+        try {
+            this.segment = arena.allocate(ELEMENT.byteSize() * row * (long) column, ALIGNMENT);
+        } catch (RuntimeException | Error e) {
+            // Nobody else can reach an arena we created, so free it before giving up
+            if (owned) {
+                arena.close();
+            }
+            throw e;
+        }
+        this.ownedArena = owned ? arena : null;
+    }
+
+    public static OffHeapMatrix from(double[][] matrix) {
+        int rows = matrix.length;
+        int cols = rows == 0 ? 0 : matrix[0].length;
+        OffHeapMatrix result = new OffHeapMatrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            MemorySegment.copy(matrix[i], 0, result.segment, ELEMENT, result.offset(i, 0), cols);
+        }
+        return result;
+    }
+
+    public static OffHeapMatrix from(FlatMatrix matrix) {
+        OffHeapMatrix result = new OffHeapMatrix(matrix.row, matrix.col);
+        for (int i = 0; i < matrix.row; i++) {
+            MemorySegment.copy(matrix.data, i * matrix.stride, result.segment, ELEMENT, result.offset(i, 0), matrix.col);
+        }
+        return result;
+    }
+
+    /**
+     * Byte offset of element (i, j)
+     */
+    public long offset(int i, int j) {
+        return (i * stride + j) * ELEMENT.byteSize();
+    }
+
+    public double get(int i, int j) {
+        return segment.getAtIndex(ELEMENT, i * stride + j);
+    }
+
+    public void set(int i, int j, double value) {
+        segment.setAtIndex(ELEMENT, i * stride + j, value);
+    }
+
+    public void assignRandom() {
+        assignRandom(RandomFill.nextSeed());
+    }
+
+    /**
+     * Seeded fill with the same values as FlatMatrix.assignRandom(seed).
+     * Runs on the calling thread because a caller-supplied arena may be
+     * confined to it
+     */
+    public void assignRandom(long seed) {
+        RandomFill.fillSequential(row, seed, (i, random) -> {
+            long base = i * stride;
+            for (int j = 0; j < col; ++j) {
+                segment.setAtIndex(ELEMENT, base + j, random.nextDouble(1000));
+            }
+        });
+    }
+
+    public double[][] toArray() {
+        double[][] result = new double[row][col];
+        for (int i = 0; i < row; i++) {
+            MemorySegment.copy(segment, ELEMENT, offset(i, 0), result[i], 0, col);
+        }
+        return result;
+    }
+
+    public FlatMatrix toFlat() {
+        FlatMatrix result = new FlatMatrix(row, col);
+        for (int i = 0; i < row; i++) {
+            MemorySegment.copy(segment, ELEMENT, offset(i, 0), result.data, i * result.stride, col);
+        }
+        return result;
+    }
+
+    /**
+     * Zero every element before reusing this matrix as an accumulator
+     */
+    public void clear() {
+        segment.fill((byte) 0);
+    }
+
+    /**
+     * Native bytes held by this matrix
+     */
+    public long byteSize() {
+        return segment.byteSize();
+    }
+
+    /**
+     * Free the backing memory if this matrix owns its arena. Matrices
+     * allocated in a caller's arena are left for that arena to free.
+     */
+    @Override
+    public void close() {
+        if (ownedArena != null) {
+            ownedArena.close();
+        }
+    }
+
+    /**
+     * C[startRow..endRow) += A * B in i-k-j tile order, reading and writing
+     * the segments directly
+     */
+    public static void multiplyRowsBlocked(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C,
+            int startRow, int endRow, int blockSize) {
+        final MemorySegment a = A.segment, b = B.segment, c = C.segment;
+        final int n = B.col;
+        final int inner = A.col;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+
+            for (int k0 = 0; k0 < inner; k0 += blockSize) {
+                int kLimit = Math.min(k0 + blockSize, inner);
+
+                for (int j0 = 0; j0 < n; j0 += blockSize) {
+                    int jLimit = Math.min(j0 + blockSize, n);
+
+                    for (int i = i0; i < iLimit; i++) {
+                        long aBase = i * A.stride;
+                        long cBase = i * C.stride;
+                        for (int k = k0; k < kLimit; k++) {
+                            double aik = a.getAtIndex(ELEMENT, aBase + k);
+                            long bBase = k * B.stride;
+                            for (int j = j0; j < jLimit; j++) {
+                                long idx = cBase + j;
+                                c.setAtIndex(ELEMENT, idx, c.getAtIndex(ELEMENT, idx) + aik * b.getAtIndex(ELEMENT, bBase + j));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
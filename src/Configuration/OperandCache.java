@@ -0,0 +1,244 @@
+package Configuration;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of prepared operands (a transposed or packed copy of B)
+ * so a B that is multiplied by many different A's is prepared once.
+ *
+ * Entries are keyed by the identity of the source matrix plus the kind of
+ * preparation, and remember the source version they were built from. A
+ * lookup with a newer version rebuilds the entry, so a FlatMatrix or
+ * Matrix whose writes went through its own methods or were announced with
+ * markModified() is never served stale. Raw double[][] operands carry no
+ * version of their own; the caller passes one and bumps it whenever it
+ * writes the array.
+ *
+ * Keys hold their source only weakly: the cache never keeps an operand the
+ * caller has dropped alive, and the entries of a collected source are
+ * purged on the next call. The cache holds at most byteBudget bytes of
+ * prepared data and evicts the least recently used entries past that. An
+ * operand larger than the whole budget is prepared and returned but not
+ * cached.
+ */
+public class OperandCache {
+    private static final String TRANSPOSED = "transposed";
+
+    /**
+     * Weak reference to the source plus the kind. The hash is taken while
+     * the source is alive, so a cleared key can still be found and removed
+     */
+    private static final class Key extends WeakReference<Object> {
+        final String kind;
+        final int hash;
+
+        Key(Object source, String kind, ReferenceQueue<Object> queue) {
+            super(source, queue);
+            this.kind = kind;
+            this.hash = System.identityHashCode(source) * 31 + kind.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) {
+                return true;
+            }
+            Object source = get();
+            return other instanceof Key key && source != null && key.get() == source && key.kind.equals(kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        final long version;
+        final long bytes;
+        final Object prepared;
+
+        Entry(long version, long bytes, Object prepared) {
+            this.version = version;
+            this.bytes = bytes;
+            this.prepared = prepared;
+        }
+    }
+
+    private final long byteBudget;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private long bytesUsed;
+    private long hits, misses, evictions;
+
+    /**
+     * @param byteBudget Largest number of bytes of prepared operands kept
+     */
+    public OperandCache(long byteBudget) {
+        if (byteBudget < 0) {
+            throw new IllegalArgumentException("Byte budget must not be negative: " + byteBudget);
+        }
+        this.byteBudget = byteBudget;
+    }
+
+    /**
+     * Transposed copy of B, built at most once per version of B
+     */
+    public FlatMatrix transposed(FlatMatrix B) {
+        return prepare(B, B.version(), TRANSPOSED, (long) B.row * B.col * Double.BYTES, B::transpose);
+    }
+
+    /**
+     * Transposed copy of B, built at most once per version of B
+     */
+    public Matrix transposed(Matrix B) {
+        return prepare(B, B.version(), TRANSPOSED, (long) B.row * B.col * Double.BYTES, B::transpose);
+    }
+
+    /**
+     * Transposed copy of a raw array; the caller supplies its version
+     */
+    public double[][] transposed(double[][] B, long version) {
+        long bytes = (long) B.length * (B.length == 0 ? 0 : B[0].length) * Double.BYTES;
+        return prepare(B, version, TRANSPOSED, bytes, () -> {
+            int rows = B.length, cols = B[0].length;
+            double[][] result = new double[cols][rows];
+            final int blockSize = 32;
+            for (int i0 = 0; i0 < rows; i0 += blockSize) {
+                int iLimit = Math.min(i0 + blockSize, rows);
+                for (int j0 = 0; j0 < cols; j0 += blockSize) {
+                    int jLimit = Math.min(j0 + blockSize, cols);
+                    for (int i = i0; i < iLimit; i++) {
+                        for (int j = j0; j < jLimit; j++) {
+                            result[j][i] = B[i][j];
+                        }
+                    }
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Return the cached preparation of source for this version, or build
+     * it with preparer. The preparer runs outside the lock, so two threads
+     * missing on the same key may both build it; the later one wins.
+     *
+     * @param source Operand the preparation is derived from, compared by identity and held weakly
+     * @param version Modification version of source
+     * @param kind Name of the preparation, so one source can have several
+     * @param bytes Size of the prepared result, charged against the budget
+     * @param preparer Builds the prepared result on a miss
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T prepare(Object source, long version, String kind, long bytes, Supplier<T> preparer) {
+        synchronized (this) {
+            purge();
+            Entry entry = entries.get(new Key(source, kind, null));
+            if (entry != null && entry.version == version) {
+                hits++;
+                return (T) entry.prepared;
+            }
+            misses++;
+        }
+
+        T prepared = preparer.get();
+        if (bytes > byteBudget) {
+            invalidate(source, kind);
+            return prepared;
+        }
+
+        synchronized (this) {
+            Entry old = entries.put(new Key(source, kind, collected), new Entry(version, bytes, prepared));
+            if (old != null) {
+                bytesUsed -= old.bytes;
+            }
+            bytesUsed += bytes;
+
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (bytesUsed > byteBudget && eldest.hasNext()) {
+                Entry evicted = eldest.next().getValue();
+                eldest.remove();
+                bytesUsed -= evicted.bytes;
+                evictions++;
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Drop every prepared operand derived from source
+     */
+    public synchronized void invalidate(Object source) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> entry = it.next();
+            if (entry.getKey().get() == source) {
+                bytesUsed -= entry.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    private synchronized void invalidate(Object source, String kind) {
+        Entry stale = entries.remove(new Key(source, kind, null));
+        if (stale != null) {
+            bytesUsed -= stale.bytes;
+        }
+    }
+
+    /**
+     * Drop the entries whose source has been garbage collected
+     */
+    private void purge() {
+        for (Reference<?> cleared = collected.poll(); cleared != null; cleared = collected.poll()) {
+            Entry stale = entries.remove(cleared);
+            if (stale != null) {
+                bytesUsed -= stale.bytes;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytesUsed = 0;
+    }
+
+    public long byteBudget() {
+        return byteBudget;
+    }
+
+    public synchronized long bytesUsed() {
+        purge();
+        return bytesUsed;
+    }
+
+    public synchronized int size() {
+        purge();
+        return entries.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("OperandCache[%d entries, %d/%d bytes, hits %d, misses %d, evictions %d]",
+                entries.size(), bytesUsed, byteBudget, hits, misses, evictions);
+    }
+}
@@ -0,0 +1,347 @@
+package Configuration;
+
+import java.util.Arrays;
+
+/**
+ * GotoBLAS-style matrix multiply on flat storage.
+ *
+ * The loops follow the usual five-level structure:
+ * - jc steps over nc-wide column panels of B and C (sized for L3)
+ * - pc steps over kc-deep slices of the inner dimension; the kc x nc block
+ *   of B is packed into NR-wide slivers
+ * - ic steps over mc-tall row panels of A (sized for L2); the mc x kc block
+ *   of A is packed into MR-tall slivers
+ * - the macro-kernel walks the packed panels, and for each MR x NR tile of
+ *   C calls a micro-kernel that streams one A sliver and one B sliver
+ *   (together sized for L1) and keeps the whole tile in local accumulators,
+ *   reading and writing C only once per kc slice
+ *
+ * Packing makes every micro-kernel load unit stride regardless of the
+ * source layout and zero-pads ragged edges, so the micro-kernel has no
+ * bounds checks. The scalar micro-kernel is 4 x 4 with 16 accumulators;
+ * VectorKernels.microKernel is 4 x (2 vectors) with FMA.
+ */
+public final class PackedGemm {
+    /** Rows of the scalar micro-kernel tile */
+    public static final int MR = 4;
+    /** Columns of the scalar micro-kernel tile */
+    public static final int NR = 4;
+
+    /**
+     * Cache blocking of the packed engine. kc is the depth of a packed
+     * slice (an MR x kc A sliver plus a kc x NR B sliver should fit L1),
+     * mc x kc doubles of packed A should fit L2, and kc x nc doubles of
+     * packed B should fit L3
+     */
+    public static final class Blocking {
+        public static final Blocking DEFAULT = new Blocking(128, 256, 4096);
+
+        public final int mc, kc, nc;
+
+        public Blocking(int mc, int kc, int nc) {
+            if (mc < 1 || kc < 1 || nc < 1) {
+                throw new IllegalArgumentException("Blocking sizes must be positive: mc=" + mc + ", kc=" + kc + ", nc=" + nc);
+            }
+            this.mc = mc;
+            this.kc = kc;
+            this.nc = nc;
+        }
+
+        @Override
+        public String toString() {
+            return "mc=" + mc + ", kc=" + kc + ", nc=" + nc;
+        }
+    }
+
+    /**
+     * Packing buffers of multiplyTile, one set per thread, grown on demand
+     * and kept for the life of the thread. Each is bounded by the blocking
+     * (at most nc x kc doubles for B), so a pool thread holds a few MB
+     */
+    private static final class Scratch {
+        double[] packedA = new double[0];
+        double[] packedB = new double[0];
+        double[] tile = new double[0];
+
+        static double[] atLeast(double[] buffer, int length) {
+            return buffer.length >= length ? buffer : new double[length];
+        }
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private PackedGemm() {
+    }
+
+    /**
+     * C += A * B on the calling thread
+     *
+     * @param simd Whether to use the Vector API micro-kernel
+     */
+    public static void multiply(FlatMatrix A, FlatMatrix B, FlatMatrix C, Blocking blocking, boolean simd) {
+        final int m = A.row, n = B.col, k = A.col;
+        final int mr = MR, nr = tileColumns(simd);
+        double[] packedB = new double[roundUp(Math.min(blocking.nc, n), nr) * Math.min(blocking.kc, k)];
+        double[] packedA = new double[roundUp(Math.min(blocking.mc, m), mr) * Math.min(blocking.kc, k)];
+
+        for (int jc = 0; jc < n; jc += blocking.nc) {
+            int nc = Math.min(blocking.nc, n - jc);
+            for (int pc = 0; pc < k; pc += blocking.kc) {
+                int kc = Math.min(blocking.kc, k - pc);
+                packB(B, pc, jc, kc, nc, nr, packedB);
+                for (int ic = 0; ic < m; ic += blocking.mc) {
+                    int mc = Math.min(blocking.mc, m - ic);
+                    packA(A, ic, pc, mc, kc, mr, packedA);
+                    macroKernel(packedA, packedB, C, ic, jc, mc, nc, kc, simd);
+                }
+            }
+        }
+        C.markModified();
+    }
+
+    /**
+     * Tile [startRow, endRow) x [startCol, endCol) of C += A * B on jagged
+     * arrays, for the row-band and 2D-tile drivers; since the rows of C are
+     * separate arrays, every micro-tile is accumulated through a scratch
+     * tile instead of in place. The packing buffers are the calling
+     * thread's, so a leaf allocates nothing.
+     *
+     * Each call packs the k x (endCol - startCol) strip of B it needs
+     * itself, so B is packed once per tile rather than once per product:
+     * an m-row tile spends about one copy per 2m flops on it, under 1% for
+     * a 64-row tile but a quarter of the work for a 2-row one. Drivers
+     * should therefore keep tiles many rows tall
+     */
+    public static void multiplyTile(double[][] A, double[][] B, double[][] C, int startRow, int endRow,
+            int startCol, int endCol, Blocking blocking, boolean simd) {
+        final int m = endRow - startRow, n = endCol - startCol, k = A[0].length;
+        final int mr = MR, nr = tileColumns(simd);
+        Scratch scratch = SCRATCH.get();
+        double[] packedB = scratch.packedB = Scratch.atLeast(scratch.packedB,
+                roundUp(Math.min(blocking.nc, n), nr) * Math.min(blocking.kc, k));
+        double[] packedA = scratch.packedA = Scratch.atLeast(scratch.packedA,
+                roundUp(Math.min(blocking.mc, m), mr) * Math.min(blocking.kc, k));
+        double[] tile = scratch.tile = Scratch.atLeast(scratch.tile, mr * nr);
+
+        for (int jc = startCol; jc < endCol; jc += blocking.nc) {
+            int nc = Math.min(blocking.nc, endCol - jc);
+            for (int pc = 0; pc < k; pc += blocking.kc) {
+                int kc = Math.min(blocking.kc, k - pc);
+                packB(B, pc, jc, kc, nc, nr, packedB);
+                for (int ic = startRow; ic < endRow; ic += blocking.mc) {
+                    int mc = Math.min(blocking.mc, endRow - ic);
+                    packA(A, ic, pc, mc, kc, mr, packedA);
+                    macroKernel(packedA, packedB, C, ic, jc, mc, nc, kc, simd, tile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Columns per micro-kernel tile, which is also the sliver width B must
+     * be packed with
+     */
+    public static int tileColumns(boolean simd) {
+        return simd ? VectorKernels.MICRO_COLUMNS : NR;
+    }
+
+    /**
+     * Pack the mc x kc block of A at (ic, pc) into MR-tall slivers. Sliver s
+     * holds rows ic + s*mr .. for every p in [0, kc), stored p-major so the
+     * micro-kernel reads mr consecutive values per step. Rows past the edge
+     * are zero
+     */
+    public static void packA(FlatMatrix A, int ic, int pc, int mc, int kc, int mr, double[] packed) {
+        final double[] a = A.data;
+        int slivers = (mc + mr - 1) / mr;
+        for (int s = 0; s < slivers; s++) {
+            int base = s * kc * mr;
+            for (int r = 0; r < mr; r++) {
+                int row = s * mr + r;
+                if (row < mc) {
+                    int src = (ic + row) * A.stride + pc;
+                    for (int p = 0; p < kc; p++) {
+                        packed[base + p * mr + r] = a[src + p];
+                    }
+                } else {
+                    for (int p = 0; p < kc; p++) {
+                        packed[base + p * mr + r] = 0.0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Jagged-array counterpart of packA(FlatMatrix, ...)
+     */
+    public static void packA(double[][] A, int ic, int pc, int mc, int kc, int mr, double[] packed) {
+        int slivers = (mc + mr - 1) / mr;
+        for (int s = 0; s < slivers; s++) {
+            int base = s * kc * mr;
+            for (int r = 0; r < mr; r++) {
+                int row = s * mr + r;
+                if (row < mc) {
+                    double[] line = A[ic + row];
+                    for (int p = 0; p < kc; p++) {
+                        packed[base + p * mr + r] = line[pc + p];
+                    }
+                } else {
+                    for (int p = 0; p < kc; p++) {
+                        packed[base + p * mr + r] = 0.0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pack the kc x nc block of B at (pc, jc) into NR-wide slivers. Sliver t
+     * holds columns jc + t*nr .. for every p in [0, kc), nr consecutive
+     * values per step. Columns past the edge are zero
+     */
+    public static void packB(FlatMatrix B, int pc, int jc, int kc, int nc, int nr, double[] packed) {
+        final double[] b = B.data;
+        int slivers = (nc + nr - 1) / nr;
+        for (int t = 0; t < slivers; t++) {
+            int base = t * kc * nr;
+            int cols = Math.min(nr, nc - t * nr);
+            for (int p = 0; p < kc; p++) {
+                int src = (pc + p) * B.stride + jc + t * nr;
+                int dst = base + p * nr;
+                System.arraycopy(b, src, packed, dst, cols);
+                for (int c = cols; c < nr; c++) {
+                    packed[dst + c] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Jagged-array counterpart of packB(FlatMatrix, ...)
+     */
+    public static void packB(double[][] B, int pc, int jc, int kc, int nc, int nr, double[] packed) {
+        int slivers = (nc + nr - 1) / nr;
+        for (int t = 0; t < slivers; t++) {
+            int base = t * kc * nr;
+            int cols = Math.min(nr, nc - t * nr);
+            for (int p = 0; p < kc; p++) {
+                int dst = base + p * nr;
+                System.arraycopy(B[pc + p], jc + t * nr, packed, dst, cols);
+                for (int c = cols; c < nr; c++) {
+                    packed[dst + c] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiply a packed mc x kc block of A by a packed kc x nc block of B
+     * into C at (ic, jc). Full tiles are accumulated straight into C; ragged
+     * edge tiles go through a small scratch tile
+     */
+    public static void macroKernel(double[] packedA, double[] packedB, FlatMatrix C,
+            int ic, int jc, int mc, int nc, int kc, boolean simd) {
+        final int mr = MR, nr = tileColumns(simd);
+        double[] edge = null;
+
+        for (int jr = 0; jr < nc; jr += nr) {
+            int cols = Math.min(nr, nc - jr);
+            int bOff = (jr / nr) * kc * nr;
+            for (int ir = 0; ir < mc; ir += mr) {
+                int rows = Math.min(mr, mc - ir);
+                int aOff = (ir / mr) * kc * mr;
+                int cOff = (ic + ir) * C.stride + jc + jr;
+
+                if (rows == mr && cols == nr) {
+                    microKernel(kc, packedA, aOff, packedB, bOff, C.data, cOff, C.stride, simd);
+                } else {
+                    if (edge == null) {
+                        edge = new double[mr * nr];
+                    } else {
+                        Arrays.fill(edge, 0.0);
+                    }
+                    microKernel(kc, packedA, aOff, packedB, bOff, edge, 0, nr, simd);
+                    for (int r = 0; r < rows; r++) {
+                        for (int c = 0; c < cols; c++) {
+                            C.data[cOff + r * C.stride + c] += edge[r * nr + c];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Macro-kernel for jagged C: every tile is computed into the MR x
+     * tileColumns scratch tile and then added to the rows of C
+     */
+    public static void macroKernel(double[] packedA, double[] packedB, double[][] C,
+            int ic, int jc, int mc, int nc, int kc, boolean simd, double[] tile) {
+        final int mr = MR, nr = tileColumns(simd);
+
+        for (int jr = 0; jr < nc; jr += nr) {
+            int cols = Math.min(nr, nc - jr);
+            int bOff = (jr / nr) * kc * nr;
+            for (int ir = 0; ir < mc; ir += mr) {
+                int rows = Math.min(mr, mc - ir);
+                int aOff = (ir / mr) * kc * mr;
+
+                Arrays.fill(tile, 0.0);
+                microKernel(kc, packedA, aOff, packedB, bOff, tile, 0, nr, simd);
+                for (int r = 0; r < rows; r++) {
+                    double[] line = C[ic + ir + r];
+                    int base = jc + jr;
+                    for (int c = 0; c < cols; c++) {
+                        line[base + c] += tile[r * nr + c];
+                    }
+                }
+            }
+        }
+    }
+
+    private static void microKernel(int kc, double[] a, int aOff, double[] b, int bOff,
+            double[] c, int cOff, int cStride, boolean simd) {
+        if (simd) {
+            VectorKernels.microKernel(kc, a, aOff, b, bOff, c, cOff, cStride);
+        } else {
+            microKernel4x4(kc, a, aOff, b, bOff, c, cOff, cStride);
+        }
+    }
+
+    /**
+     * C[4 x 4 tile] += packed A sliver * packed B sliver, all 16 partial
+     * sums held in locals for the whole kc loop
+     */
+    public static void microKernel4x4(int kc, double[] a, int aOff, double[] b, int bOff,
+            double[] c, int cOff, int cStride) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        for (int p = 0; p < kc; p++) {
+            int ap = aOff + p * MR, bp = bOff + p * NR;
+            double a0 = a[ap], a1 = a[ap + 1], a2 = a[ap + 2], a3 = a[ap + 3];
+            double b0 = b[bp], b1 = b[bp + 1], b2 = b[bp + 2], b3 = b[bp + 3];
+
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+        }
+
+        int r0 = cOff, r1 = r0 + cStride, r2 = r1 + cStride, r3 = r2 + cStride;
+        c[r0] += c00; c[r0 + 1] += c01; c[r0 + 2] += c02; c[r0 + 3] += c03;
+        c[r1] += c10; c[r1 + 1] += c11; c[r1 + 2] += c12; c[r1 + 3] += c13;
+        c[r2] += c20; c[r2 + 1] += c21; c[r2 + 2] += c22; c[r2 + 3] += c23;
+        c[r3] += c30; c[r3 + 1] += c31; c[r3 + 2] += c32; c[r3 + 3] += c33;
+    }
+
+    /**
+     * Smallest multiple of step that is >= value
+     */
+    public static int roundUp(int value, int step) {
+        return (value + step - 1) / step * step;
+    }
+}
@@ -0,0 +1,23 @@
+package Configuration;
+
+/**
+ * Receives progress reports from a ProgressTracker. Reports may arrive on
+ * any worker thread, so implementations must be thread-safe; the tracker
+ * throttles them to at most about one per reporting interval.
+ */
+public interface ProgressListener {
+
+    /**
+     * @param completed Units of work finished so far
+     * @param total Units of work in the whole operation
+     * @param etaMillis Estimated time remaining, or -1 when not yet known
+     */
+    void onProgress(long completed, long total, long etaMillis);
+
+    /**
+     * Called once when the operation finishes
+     */
+    default void onComplete(long total, long elapsedMillis) {
+        onProgress(total, total, 0);
+    }
+}
@@ -0,0 +1,86 @@
+package Configuration;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Completed-work counter shared by every worker of one multiplication.
+ *
+ * Workers call advance() as they finish rows or tiles. The count is a
+ * LongAdder, so concurrent updates do not contend on one cache line, and at
+ * most one caller per interval wins the CAS on the next report deadline and
+ * forwards a report to the listener. Nothing is allocated per update and no
+ * lock is taken.
+ *
+ * NONE has no listener and turns every call into a no-op.
+ */
+public class ProgressTracker {
+    public static final ProgressTracker NONE = new ProgressTracker(null, 0);
+
+    private final ProgressListener listener;
+    private final long intervalNanos;
+    private final LongAdder completed = new LongAdder();
+    private final AtomicLong nextReportNanos = new AtomicLong();
+    private volatile long total;
+    private volatile long startNanos;
+
+    public ProgressTracker(ProgressListener listener) {
+        this(listener, 100);
+    }
+
+    /**
+     * @param listener Receiver of the reports, or null for none
+     * @param intervalMillis Minimum time between two reports
+     */
+    public ProgressTracker(ProgressListener listener, long intervalMillis) {
+        this.listener = listener;
+        this.intervalNanos = intervalMillis * 1_000_000L;
+    }
+
+    /**
+     * Reset the counter for an operation of totalUnits units
+     */
+    public void begin(long totalUnits) {
+        if (listener == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        completed.reset();
+        total = totalUnits;
+        startNanos = now;
+        nextReportNanos.set(now + intervalNanos);
+        listener.onProgress(0, totalUnits, -1);
+    }
+
+    public void advance(long units) {
+        if (listener == null) {
+            return;
+        }
+        completed.add(units);
+
+        long now = System.nanoTime();
+        long due = nextReportNanos.get();
+        if (now - due < 0 || !nextReportNanos.compareAndSet(due, now + intervalNanos)) {
+            return;
+        }
+
+        long done = completed.sum();
+        long elapsed = now - startNanos;
+        long eta = done == 0 ? -1 : (long) ((double) elapsed / done * (total - done) / 1_000_000.0);
+        listener.onProgress(done, total, eta);
+    }
+
+    /**
+     * Send the final report regardless of the throttle
+     */
+    public void finish() {
+        if (listener == null) {
+            return;
+        }
+        listener.onComplete(total, (System.nanoTime() - startNanos) / 1_000_000L);
+    }
+
+    public long completed() {
+        return completed.sum();
+    }
+}
@@ -0,0 +1,89 @@
+package Configuration;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Seeded, parallel random fill for every matrix type.
+ *
+ * Rows are grouped into tiles of ROWS_PER_TILE. A root SplittableRandom
+ * built from the seed is split once per tile, in tile order, before any
+ * work starts, so tile t always draws from the same generator whichever
+ * thread runs it. The filled values therefore depend only on the seed and
+ * the shape, never on the number of threads or the scheduling.
+ *
+ * Unseeded fills take their seed from nextSeed(), a counter that starts at
+ * the matrix.seed system property (42 by default). A benchmark that
+ * generates its inputs in a fixed order thus sees the same data on every
+ * run, while A and B within one run still differ.
+ */
+public final class RandomFill {
+    /** System property holding the first seed handed out by nextSeed() */
+    public static final String SEED_PROPERTY = "matrix.seed";
+    public static final int ROWS_PER_TILE = 16;
+
+    private static final AtomicLong NEXT_SEED = new AtomicLong(Long.getLong(SEED_PROPERTY, 42L));
+
+    /**
+     * Writes one row from the generator of the tile it belongs to
+     */
+    public interface RowFiller {
+        void fillRow(int row, SplittableRandom random);
+    }
+
+    private RandomFill() {
+    }
+
+    /**
+     * Next seed of the process-wide reproducible sequence
+     */
+    public static long nextSeed() {
+        return NEXT_SEED.getAndIncrement();
+    }
+
+    /**
+     * Fill rows [0, rows) in parallel on the common pool
+     */
+    public static void fill(int rows, long seed, RowFiller filler) {
+        fill(rows, seed, filler, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Fill rows [0, rows) in parallel on the given pool; the result is the
+     * same for any pool size
+     */
+    public static void fill(int rows, long seed, RowFiller filler, ForkJoinPool pool) {
+        SplittableRandom[] generators = tileGenerators(rows, seed);
+        pool.submit(() -> IntStream.range(0, generators.length).parallel()
+                .forEach(tile -> fillTile(tile, rows, generators[tile], filler))).join();
+    }
+
+    /**
+     * Same values as fill() produced on the calling thread, for storage that
+     * must not be touched by other threads (e.g. a confined arena)
+     */
+    public static void fillSequential(int rows, long seed, RowFiller filler) {
+        SplittableRandom[] generators = tileGenerators(rows, seed);
+        for (int tile = 0; tile < generators.length; tile++) {
+            fillTile(tile, rows, generators[tile], filler);
+        }
+    }
+
+    private static SplittableRandom[] tileGenerators(int rows, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] generators = new SplittableRandom[(rows + ROWS_PER_TILE - 1) / ROWS_PER_TILE];
+        for (int tile = 0; tile < generators.length; tile++) {
+            generators[tile] = root.split();
+        }
+        return generators;
+    }
+
+    private static void fillTile(int tile, int rows, SplittableRandom random, RowFiller filler) {
+        int end = Math.min((tile + 1) * ROWS_PER_TILE, rows);
+        for (int i = tile * ROWS_PER_TILE; i < end; i++) {
+            filler.fillRow(i, random);
+        }
+    }
+}
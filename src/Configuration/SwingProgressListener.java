@@ -0,0 +1,34 @@
+package Configuration;
+
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Optional adapter that drives a JProgressBar. Only posts to the EDT when
+ * the whole percentage changes, so at most about a hundred updates are
+ * queued per multiplication.
+ */
+public class SwingProgressListener implements ProgressListener {
+    private final JProgressBar progressBar;
+    private final AtomicInteger lastPercent = new AtomicInteger(-1);
+
+    public SwingProgressListener(JProgressBar progressBar) {
+        this.progressBar = progressBar;
+    }
+
+    @Override
+    public void onProgress(long completed, long total, long etaMillis) {
+        int progress = total == 0 ? 100 : (int) (completed * 100 / total);
+        if (lastPercent.getAndSet(progress) == progress) {
+            return;
+        }
+        String text = etaMillis < 0
+                ? "Progress: " + progress + "%"
+                : String.format("Progress: %d%% (ETA %.1f s)", progress, etaMillis / 1000.0);
+        SwingUtilities.invokeLater(() -> {
+            progressBar.setValue(progress);
+            progressBar.setString(text);
+        });
+    }
+}
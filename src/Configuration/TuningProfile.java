@@ -0,0 +1,265 @@
+package Configuration;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Tuned engine parameters for one machine: for every size class the best
+ * leaf threshold, block size, kernel and thread count found by the
+ * autotuner.
+ *
+ * A profile is stored as a properties file named after the machine key
+ * (CPU model plus core count) in the directory given by the
+ * matrix.tuning.dir system property, ~/.matrix-tuning by default:
+ *
+ * <pre>
+ * cpu.model=Intel(R) Xeon(R) Processor
+ * cpu.cores=8
+ * classes=2
+ * class.0.maxSize=768
+ * class.0.threshold=64
+ * class.0.blockSize=32
+ * class.0.kernel=packed-simd
+ * class.0.threads=8
+ * class.1.maxSize=2147483647
+ * ...
+ * </pre>
+ *
+ * Classes are sorted by maxSize; a matrix of size n uses the first class
+ * with n &lt;= maxSize. A file written on another CPU or core count is
+ * ignored, so copying a home directory between hosts cannot apply the wrong
+ * parameters.
+ */
+public final class TuningProfile {
+    /** System property naming the directory that holds profiles */
+    public static final String PROFILE_DIR_PROPERTY = "matrix.tuning.dir";
+
+    /** Profile with no classes; every lookup falls back to the built-in defaults */
+    public static final TuningProfile EMPTY = new TuningProfile(machineCpuModel(), machineCores(), List.of());
+
+    /**
+     * Winning parameters for matrices up to maxSize
+     */
+    public static final class SizeClass {
+        public final int maxSize;
+        public final int threshold;
+        public final int blockSize;
+        public final String kernel;
+        /** Only applied by MatrixMultiplier.multiplyTuned(); the default pool keeps its size */
+        public final int threads;
+
+        public SizeClass(int maxSize, int threshold, int blockSize, String kernel, int threads) {
+            if (maxSize < 1 || threshold < 1 || blockSize < 1 || threads < 1) {
+                throw new IllegalArgumentException("Tuning parameters must be positive: maxSize=" + maxSize
+                        + ", threshold=" + threshold + ", blockSize=" + blockSize + ", threads=" + threads);
+            }
+            this.maxSize = maxSize;
+            this.threshold = threshold;
+            this.blockSize = blockSize;
+            this.kernel = kernel;
+            this.threads = threads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("<=%d: threshold=%d, blockSize=%d, kernel=%s, threads=%d",
+                    maxSize, threshold, blockSize, kernel, threads);
+        }
+    }
+
+    private final String cpuModel;
+    private final int cores;
+    private final List<SizeClass> classes;
+
+    public TuningProfile(String cpuModel, int cores, List<SizeClass> classes) {
+        List<SizeClass> sorted = new ArrayList<>(classes);
+        sorted.sort((x, y) -> Integer.compare(x.maxSize, y.maxSize));
+        this.cpuModel = cpuModel;
+        this.cores = cores;
+        this.classes = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Class covering matrices of size n, or null if the profile has none
+     */
+    public SizeClass find(int n) {
+        for (SizeClass sizeClass : classes) {
+            if (n <= sizeClass.maxSize) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    public List<SizeClass> classes() {
+        return classes;
+    }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    public String cpuModel() {
+        return cpuModel;
+    }
+
+    public int cores() {
+        return cores;
+    }
+
+    /**
+     * Profile stored for this machine, or EMPTY when there is none or it
+     * cannot be read. Never throws, so it is safe to call from a static
+     * initializer
+     */
+    public static TuningProfile loadForThisMachine() {
+        Path path = defaultPath();
+        if (!Files.exists(path)) {
+            return EMPTY;
+        }
+        try {
+            TuningProfile profile = load(path);
+            if (!profile.cpuModel.equals(machineCpuModel()) || profile.cores != machineCores()) {
+                System.err.println("Ignoring tuning profile " + path + ": it was tuned on "
+                        + profile.cpuModel + " with " + profile.cores + " cores");
+                return EMPTY;
+            }
+            return profile;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading tuning profile " + path + ": " + e.getMessage());
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Read a profile file
+     *
+     * @throws IllegalArgumentException if a field is missing or malformed
+     */
+    public static TuningProfile load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+
+        int count = intProperty(properties, "classes");
+        List<SizeClass> classes = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            String prefix = "class." + c + ".";
+            classes.add(new SizeClass(
+                    intProperty(properties, prefix + "maxSize"),
+                    intProperty(properties, prefix + "threshold"),
+                    intProperty(properties, prefix + "blockSize"),
+                    stringProperty(properties, prefix + "kernel"),
+                    intProperty(properties, prefix + "threads")));
+        }
+        return new TuningProfile(stringProperty(properties, "cpu.model"), intProperty(properties, "cpu.cores"), classes);
+    }
+
+    /**
+     * Write this profile to the file for this machine
+     *
+     * @return Path of the file written
+     */
+    public Path saveForThisMachine() throws IOException {
+        Path path = defaultPath();
+        Files.createDirectories(path.getParent());
+        save(path);
+        return path;
+    }
+
+    public void save(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("cpu.model", cpuModel);
+        properties.setProperty("cpu.cores", Integer.toString(cores));
+        properties.setProperty("classes", Integer.toString(classes.size()));
+        for (int c = 0; c < classes.size(); c++) {
+            SizeClass sizeClass = classes.get(c);
+            String prefix = "class." + c + ".";
+            properties.setProperty(prefix + "maxSize", Integer.toString(sizeClass.maxSize));
+            properties.setProperty(prefix + "threshold", Integer.toString(sizeClass.threshold));
+            properties.setProperty(prefix + "blockSize", Integer.toString(sizeClass.blockSize));
+            properties.setProperty(prefix + "kernel", sizeClass.kernel);
+            properties.setProperty(prefix + "threads", Integer.toString(sizeClass.threads));
+        }
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            properties.store(writer, "Matrix multiplication tuning profile");
+        }
+    }
+
+    /**
+     * File the profile of this machine lives in: the machine key with
+     * everything but letters, digits, '.' and '-' replaced by '_'
+     */
+    public static Path defaultPath() {
+        String dir = System.getProperty(PROFILE_DIR_PROPERTY);
+        Path base = dir == null || dir.isEmpty()
+                ? Paths.get(System.getProperty("user.home"), ".matrix-tuning")
+                : Paths.get(dir);
+        String key = (machineCpuModel() + "-" + machineCores() + "cores").replaceAll("[^A-Za-z0-9.-]+", "_");
+        return base.resolve(key + ".properties");
+    }
+
+    /**
+     * CPU model name from /proc/cpuinfo on Linux or PROCESSOR_IDENTIFIER on
+     * Windows, else the OS architecture
+     */
+    public static String machineCpuModel() {
+        Path cpuInfo = Paths.get("/proc/cpuinfo");
+        if (Files.isReadable(cpuInfo)) {
+            try {
+                for (String line : Files.readAllLines(cpuInfo)) {
+                    if (line.startsWith("model name")) {
+                        return line.substring(line.indexOf(':') + 1).trim();
+                    }
+                }
+            } catch (IOException e) {
+                // fall through to the portable answers
+            }
+        }
+        String identifier = System.getenv("PROCESSOR_IDENTIFIER");
+        if (identifier != null && !identifier.isEmpty()) {
+            return identifier.trim();
+        }
+        return System.getProperty("os.arch");
+    }
+
+    public static int machineCores() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static int intProperty(Properties properties, String key) {
+        String value = stringProperty(properties, key);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Tuning profile field " + key + " is not a number: " + value);
+        }
+    }
+
+    private static String stringProperty(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Tuning profile is missing " + key);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("TuningProfile[").append(cpuModel).append(", ").append(cores).append(" cores]");
+        for (SizeClass sizeClass : classes) {
+            sb.append("\n  ").append(sizeClass);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,241 @@
+package Configuration;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Explicit SIMD versions of the multiply kernels, built on the incubating
+ * Vector API. The lane count comes from DoubleVector.SPECIES_PREFERRED, so
+ * the same code uses 2, 4 or 8 doubles per operation depending on the CPU
+ * (SSE, AVX2, AVX-512, NEON) and every multiply-add is a fused FMA.
+ *
+ * Two formulations are provided for both jagged and flat storage:
+ * - dot: B is already transposed, each C element is a vector dot product of
+ *   two contiguous rows reduced across lanes once at the end
+ * - broadcast: A[i][k] is broadcast to all lanes and FMA'd into a row of C
+ *   with a row of B, the i-k-j order of the scalar kernels
+ *
+ * Like the scalar kernels they accumulate into C. Using this class requires
+ * --add-modules jdk.incubator.vector at compile and run time; code that must
+ * also run without it checks KernelRegistry.isVectorApiAvailable() first,
+ * since merely loading this class fails when the module is absent.
+ */
+public final class VectorKernels {
+    public static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    /** Columns of the packed micro-kernel tile: two vectors per row */
+    public static final int MICRO_COLUMNS = 2 * SPECIES.length();
+
+    private VectorKernels() {
+    }
+
+    /**
+     * C[startRow..endRow) += A * B with Bt = B transposed, on jagged arrays
+     */
+    public static void multiplyRowsDot(double[][] A, double[][] Bt, double[][] C,
+            int startRow, int endRow, int blockSize) {
+        multiplyTileDot(A, Bt, C, startRow, endRow, 0, Bt.length, blockSize);
+    }
+
+    /**
+     * Tile [startRow, endRow) x [startCol, endCol) of C += A * B with Bt = B
+     * transposed, on jagged arrays
+     */
+    public static void multiplyTileDot(double[][] A, double[][] Bt, double[][] C,
+            int startRow, int endRow, int startCol, int endCol, int blockSize) {
+        final int inner = A[0].length;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+            for (int j0 = startCol; j0 < endCol; j0 += blockSize) {
+                int jLimit = Math.min(j0 + blockSize, endCol);
+                for (int i = i0; i < iLimit; i++) {
+                    double[] a = A[i];
+                    double[] c = C[i];
+                    for (int j = j0; j < jLimit; j++) {
+                        c[j] += dot(a, 0, Bt[j], 0, inner);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * C[startRow..endRow) += A * B in i-k-j order, on jagged arrays
+     */
+    public static void multiplyRowsBroadcast(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, int blockSize) {
+        multiplyTileBroadcast(A, B, C, startRow, endRow, 0, B[0].length, blockSize);
+    }
+
+    /**
+     * Tile [startRow, endRow) x [startCol, endCol) of C += A * B in i-k-j
+     * order, on jagged arrays
+     */
+    public static void multiplyTileBroadcast(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, int startCol, int endCol, int blockSize) {
+        final int inner = A[0].length;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+            for (int k0 = 0; k0 < inner; k0 += blockSize) {
+                int kLimit = Math.min(k0 + blockSize, inner);
+                for (int j0 = startCol; j0 < endCol; j0 += blockSize) {
+                    int jLimit = Math.min(j0 + blockSize, endCol);
+                    for (int i = i0; i < iLimit; i++) {
+                        double[] a = A[i];
+                        double[] c = C[i];
+                        for (int k = k0; k < kLimit; k++) {
+                            axpy(a[k], B[k], j0, c, j0, jLimit - j0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flat-storage counterpart of multiplyRowsDot
+     */
+    public static void multiplyRowsDot(FlatMatrix A, FlatMatrix Bt, FlatMatrix C,
+            int startRow, int endRow, int blockSize) {
+        final double[] a = A.data, bt = Bt.data, c = C.data;
+        final int n = Bt.row;
+        final int inner = A.col;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+            for (int j0 = 0; j0 < n; j0 += blockSize) {
+                int jLimit = Math.min(j0 + blockSize, n);
+                for (int i = i0; i < iLimit; i++) {
+                    int aBase = i * A.stride;
+                    int cBase = i * C.stride;
+                    for (int j = j0; j < jLimit; j++) {
+                        c[cBase + j] += dot(a, aBase, bt, j * Bt.stride, inner);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Flat-storage counterpart of multiplyRowsBroadcast
+     */
+    public static void multiplyRowsBroadcast(FlatMatrix A, FlatMatrix B, FlatMatrix C,
+            int startRow, int endRow, int blockSize) {
+        final double[] a = A.data, b = B.data, c = C.data;
+        final int n = B.col;
+        final int inner = A.col;
+
+        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
+            int iLimit = Math.min(i0 + blockSize, endRow);
+            for (int k0 = 0; k0 < inner; k0 += blockSize) {
+                int kLimit = Math.min(k0 + blockSize, inner);
+                for (int j0 = 0; j0 < n; j0 += blockSize) {
+                    int jLimit = Math.min(j0 + blockSize, n);
+                    for (int i = i0; i < iLimit; i++) {
+                        int aBase = i * A.stride;
+                        int cBase = i * C.stride;
+                        for (int k = k0; k < kLimit; k++) {
+                            axpy(a[aBase + k], b, k * B.stride + j0, c, cBase + j0, jLimit - j0);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * PackedGemm micro-kernel: C[4 x MICRO_COLUMNS tile] += packed A sliver *
+     * packed B sliver. Eight vector accumulators (4 rows x 2 vectors) stay in
+     * registers for the whole kc loop; each step loads two B vectors and
+     * broadcasts four A values
+     */
+    public static void microKernel(int kc, double[] a, int aOff, double[] b, int bOff,
+            double[] c, int cOff, int cStride) {
+        final int lanes = SPECIES.length();
+        final int mr = PackedGemm.MR, nr = MICRO_COLUMNS;
+        DoubleVector c00 = DoubleVector.zero(SPECIES), c01 = DoubleVector.zero(SPECIES);
+        DoubleVector c10 = DoubleVector.zero(SPECIES), c11 = DoubleVector.zero(SPECIES);
+        DoubleVector c20 = DoubleVector.zero(SPECIES), c21 = DoubleVector.zero(SPECIES);
+        DoubleVector c30 = DoubleVector.zero(SPECIES), c31 = DoubleVector.zero(SPECIES);
+
+        for (int p = 0; p < kc; p++) {
+            int ap = aOff + p * mr, bp = bOff + p * nr;
+            DoubleVector b0 = DoubleVector.fromArray(SPECIES, b, bp);
+            DoubleVector b1 = DoubleVector.fromArray(SPECIES, b, bp + lanes);
+
+            DoubleVector a0 = DoubleVector.broadcast(SPECIES, a[ap]);
+            c00 = b0.fma(a0, c00);
+            c01 = b1.fma(a0, c01);
+            DoubleVector a1 = DoubleVector.broadcast(SPECIES, a[ap + 1]);
+            c10 = b0.fma(a1, c10);
+            c11 = b1.fma(a1, c11);
+            DoubleVector a2 = DoubleVector.broadcast(SPECIES, a[ap + 2]);
+            c20 = b0.fma(a2, c20);
+            c21 = b1.fma(a2, c21);
+            DoubleVector a3 = DoubleVector.broadcast(SPECIES, a[ap + 3]);
+            c30 = b0.fma(a3, c30);
+            c31 = b1.fma(a3, c31);
+        }
+
+        int r = cOff;
+        DoubleVector.fromArray(SPECIES, c, r).add(c00).intoArray(c, r);
+        DoubleVector.fromArray(SPECIES, c, r + lanes).add(c01).intoArray(c, r + lanes);
+        r += cStride;
+        DoubleVector.fromArray(SPECIES, c, r).add(c10).intoArray(c, r);
+        DoubleVector.fromArray(SPECIES, c, r + lanes).add(c11).intoArray(c, r + lanes);
+        r += cStride;
+        DoubleVector.fromArray(SPECIES, c, r).add(c20).intoArray(c, r);
+        DoubleVector.fromArray(SPECIES, c, r + lanes).add(c21).intoArray(c, r + lanes);
+        r += cStride;
+        DoubleVector.fromArray(SPECIES, c, r).add(c30).intoArray(c, r);
+        DoubleVector.fromArray(SPECIES, c, r + lanes).add(c31).intoArray(c, r + lanes);
+    }
+
+    /**
+     * Sum of x[xOff + k] * y[yOff + k] for k in [0, length). Two vector
+     * accumulators keep two FMA chains in flight
+     */
+    public static double dot(double[] x, int xOff, double[] y, int yOff, int length) {
+        final int lanes = SPECIES.length();
+        DoubleVector acc0 = DoubleVector.zero(SPECIES);
+        DoubleVector acc1 = DoubleVector.zero(SPECIES);
+        int k = 0;
+
+        for (int bound = length - 2 * lanes; k <= bound; k += 2 * lanes) {
+            acc0 = DoubleVector.fromArray(SPECIES, x, xOff + k)
+                    .fma(DoubleVector.fromArray(SPECIES, y, yOff + k), acc0);
+            acc1 = DoubleVector.fromArray(SPECIES, x, xOff + k + lanes)
+                    .fma(DoubleVector.fromArray(SPECIES, y, yOff + k + lanes), acc1);
+        }
+        for (int bound = SPECIES.loopBound(length); k < bound; k += lanes) {
+            acc0 = DoubleVector.fromArray(SPECIES, x, xOff + k)
+                    .fma(DoubleVector.fromArray(SPECIES, y, yOff + k), acc0);
+        }
+
+        double sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; k < length; k++) {
+            sum += x[xOff + k] * y[yOff + k];
+        }
+        return sum;
+    }
+
+    /**
+     * y[yOff + j] += alpha * x[xOff + j] for j in [0, length)
+     */
+    public static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int length) {
+        final int lanes = SPECIES.length();
+        DoubleVector scale = DoubleVector.broadcast(SPECIES, alpha);
+        int j = 0;
+
+        for (int bound = SPECIES.loopBound(length); j < bound; j += lanes) {
+            DoubleVector.fromArray(SPECIES, x, xOff + j)
+                    .fma(scale, DoubleVector.fromArray(SPECIES, y, yOff + j))
+                    .intoArray(y, yOff + j);
+        }
+        for (; j < length; j++) {
+            y[yOff + j] += alpha * x[xOff + j];
+        }
+    }
+}
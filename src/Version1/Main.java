@@ -26,16 +26,17 @@ public class Main {
         A.assignRandom();
         B.assignRandom();
 
-        // Retrieve progress bar from Matrix class
-        JProgressBar progressBar = A.getProgressBar();
+        // Progress bar fed by the multiplication's progress tracker
+        JProgressBar progressBar = new JProgressBar(0, 100);
         progressBar.setStringPainted(true);
         frame.add(progressBar, BorderLayout.CENTER);
 
         frame.setVisible(true);
 
         // Perform multiplication & track progress
+        ProgressTracker progress = new ProgressTracker(new SwingProgressListener(progressBar));
         timer.start();
-        Matrix result = A.multiplication(B);
+        Matrix result = A.multiplication(B, progress);
         long elapsedTime = timer.end();
 
         System.out.println(size + "x" + size + " Time taken with Sequential: " + elapsedTime + " ms");
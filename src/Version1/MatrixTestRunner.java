@@ -1,6 +1,8 @@
 package Version1;
 
+import Configuration.FlatMatrix;
 import Configuration.Matrix;
+import Configuration.MatrixFile;
 import Configuration.Memory;
 import Configuration.Timer;
 import Version3.MatrixMultiplier;
@@ -126,11 +128,9 @@ public class MatrixTestRunner {
 
                 System.out.println("Testing matrix size: " + size + "x" + size);
 
-                // Generate matrices once per size
-                Matrix A = new Matrix(size, size);
-                Matrix B = new Matrix(size, size);
-                A.assignRandom();
-                B.assignRandom();
+                // Generate matrices once per size (reloaded from -Dmatrix.input.dir when set)
+                Matrix A = MatrixFile.inputMatrix("A", size, size);
+                Matrix B = MatrixFile.inputMatrix("B", size, size);
 
                 /*
                 Using Sequential Processing
@@ -151,6 +151,28 @@ public class MatrixTestRunner {
                 /*
                 Finish using sequential processing
                  */
+
+                /*
+                Using Sequential Processing on flat storage
+                 */
+                FlatMatrix flatA = A.toFlat();
+                FlatMatrix flatB = B.toFlat();
+                System.gc();
+                memory.start();
+                timer.start();
+                flatA.multiplication(flatB);
+                long flatTime = timer.end();
+                long flatMemory = memory.end();
+
+                System.out.printf("Execution time for sequential (flat) size %d: %d ms\n", size, flatTime);
+                System.out.printf("Memory Utilization for sequential (flat) size %d: %d MB\n", size, flatMemory);
+
+                writer.printf("%d,%s,%d,%d,%.2f,%.2f,%.2f\n",
+                        size, "Sequential (Flat)", flatTime, flatMemory, 100.0,
+                        (double) totalTime / Math.max(flatTime, 1), 100.0);
+                /*
+                Finish using sequential processing on flat storage
+                 */
             }
 
             System.out.println("Benchmark results saved to " + resultsDir + "/comprehensive-benchmark.csv");
@@ -0,0 +1,105 @@
+package Version2;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+Splits a loop over [0, n) between the workers of a thread pool, OpenMP
+style. Every worker runs one task that keeps taking ranges of the loop
+until none are left; how the ranges are handed out is the schedule:
+- STATIC: one contiguous slice of n / workers iterations per worker, fixed
+  up front. No coordination, but a slow worker (a busy core, a heavy row)
+  stretches the whole loop
+- DYNAMIC: workers take the next chunk iterations from a shared atomic
+  counter, so a fast worker simply takes more chunks
+- GUIDED: like DYNAMIC, but each take is remaining / workers iterations
+  (never less than chunk), so early chunks are large and cheap to hand out
+  and the tail is split finely enough that no worker is left far behind
+ */
+public class LoopScheduler {
+    public enum Schedule { STATIC, DYNAMIC, GUIDED }
+
+    /*
+    Body of the loop, called for the iterations [from, to)
+     */
+    public interface RangeBody {
+        void run(int from, int to);
+    }
+
+    /*
+    Run body over [0, n) on workers tasks of executor and wait for all of
+    them. chunk is the DYNAMIC chunk size and the smallest GUIDED chunk;
+    STATIC ignores it. If the body throws, the other workers stop taking
+    ranges and the first failure is rethrown here
+     */
+    public static void parallelFor(ExecutorService executor, int workers, int n, Schedule schedule, int chunk,
+            RangeBody body) throws InterruptedException {
+        if(workers < 1 || chunk < 1) {
+            throw new IllegalArgumentException("Workers and chunk size must be positive");
+        }
+        final int tasks = Math.max(1, Math.min(workers, n));
+        final AtomicInteger next = new AtomicInteger(); // First iteration nobody has taken yet
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(tasks);
+
+        for(int worker=0 ; worker<tasks ; worker++){
+            final int id = worker;
+            executor.execute(() -> {
+                try {
+                    runShare(schedule, id, tasks, n, chunk, next, failure, body);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown(); // Always count down so a failure cannot hang the caller
+                }
+            });
+        }
+
+        done.await();
+        rethrow(failure.get());
+    }
+
+    /*
+    The part of a loop over [0, n) that worker id of workers runs under
+    schedule. next is the shared counter of DYNAMIC and GUIDED, starting at
+    0; workers stop taking ranges once failure is set
+     */
+    static void runShare(Schedule schedule, int id, int workers, int n, int chunk, AtomicInteger next,
+            AtomicReference<Throwable> failure, RangeBody body) {
+        switch (schedule) {
+            case STATIC -> {
+                int from = (int) ((long) n * id / workers);
+                int to = (int) ((long) n * (id + 1) / workers);
+                if(from < to) body.run(from, to);
+            }
+            case DYNAMIC -> {
+                int from;
+                while (failure.get() == null && (from = next.getAndAdd(chunk)) < n) {
+                    body.run(from, Math.min(from + chunk, n));
+                }
+            }
+            case GUIDED -> {
+                while (failure.get() == null) {
+                    int from = next.get();
+                    if(from >= n) break;
+                    int size = Math.max(chunk, (n - from) / workers);
+                    int to = Math.min(from + size, n);
+                    if(next.compareAndSet(from, to)) { // Otherwise another worker took it first, retry
+                        body.run(from, to);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+    Rethrow a failure caught on a worker in the calling thread
+     */
+    static void rethrow(Throwable t) {
+        if(t instanceof RuntimeException e) throw e;
+        if(t instanceof Error e) throw e;
+        if(t != null) throw new IllegalStateException(t);
+    }
+}
@@ -1,6 +1,7 @@
 package Version2;
 
 import Configuration.Matrix;
+import Configuration.MatrixFile;
 import Configuration.Memory;
 import Configuration.Timer;
 import Version3.MatrixMultiplier;
@@ -163,11 +164,9 @@ public class MatrixTestRunner {
 
                 System.out.println("Testing matrix size: " + size + "x" + size);
 
-                // Generate matrices once per size
-                Matrix A = new Matrix(size, size);
-                Matrix B = new Matrix(size, size);
-                A.assignRandom();
-                B.assignRandom();
+                // Generate matrices once per size (reloaded from -Dmatrix.input.dir when set)
+                Matrix A = MatrixFile.inputMatrix("A", size, size);
+                Matrix B = MatrixFile.inputMatrix("B", size, size);
 
                 /*
                 Using Sequential Processing
@@ -216,6 +215,33 @@ public class MatrixTestRunner {
                 Finish using Multiple Threads (No ThreadPool)
                  */
 
+                /*
+                Using Virtual Threads
+                 */
+                System.gc();
+                memory.start();
+                timer.start();
+                MultiplyWithThreads.multiplyWithVirtualThreads(A, B);
+                totalTime = timer.end();
+                totalMemory = memory.end();
+
+                System.out.printf("Execution time for virtual threads size %d: %d ms\n", size, totalTime);
+                System.out.printf("Memory Utilization for virtual threads size %d: %d MB\n", size, totalMemory);
+
+                // Calculate speedup and efficiency
+                speedup = (double) singleThreadTime / (double) totalTime;
+                efficiency = (speedup / cores) * 100; // virtual threads run on one carrier per core
+
+                // Calculate CPU utilization (estimated)
+                cpuUtilization = (speedup / cores) * 100; // virtual threads run on one carrier per core
+
+                // Write to CSV
+                writer.printf("%d,%s,%d,%d,%.2f,%.2f,%.2f\n",
+                        size, "Concurrent - Virtual Threads", totalTime, totalMemory, cpuUtilization, speedup, efficiency);
+                /*
+                Finish using Virtual Threads
+                 */
+
                 /*
                 Using ThreadPool (Assign Thread per Row)
                  */
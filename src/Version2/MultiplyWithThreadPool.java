@@ -1,13 +1,26 @@
 package Version2;
 
+import Configuration.ConsoleProgressListener;
+import Configuration.FlatMatrix;
+import Configuration.FloatMatrix;
+import Configuration.KernelRegistry;
 import Configuration.Matrix;
+import Configuration.MatrixKernel;
+import Configuration.OperandCache;
+import Configuration.ProgressTracker;
 import Configuration.Timer;
 
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class MultiplyWithThreadPool {
+    static final int TILES_PER_THREAD = 4; // Tiles per pool thread in assignPerTile, so uneven tiles still balance
+    static final String EXECUTOR_PROPERTY = "matrix.executor"; // "ring" runs every engine here on a RingBufferExecutor
+
     public static void main(String[] args) throws InterruptedException {
         Timer timer = new Timer();
 
@@ -49,6 +62,32 @@ public class MultiplyWithThreadPool {
 
         // 5000x5000 start
         testThreadPoolPerChunkTask(5000, 5000, timer);
+
+        /*
+        Static vs. Dynamic vs. Guided Scheduling
+         */
+        System.out.println("Multiple with Thread Pools (Scheduled Rows)");
+        testSchedules(1000, timer, false);
+        testSchedules(2000, timer, false);
+
+        // Same again with one core kept busy, so one pool thread runs slower
+        testSchedules(1000, timer, true);
+        testSchedules(2000, timer, true);
+
+        /*
+        Per-Element Tasks vs. Per-Tile Tasks
+         */
+        System.out.println("Multiple with Thread Pools (Per Element vs. Per Tile)");
+        testElementVsTile(500, timer);
+        testElementVsTile(1000, timer);
+
+        /*
+        JDK Fixed Thread Pool vs. Ring Buffer Executor
+         */
+        System.out.println("Multiple with Thread Pools (JDK Pool vs. Ring Buffer)");
+        testSubmitThroughput(1_000_000);
+        testRingBuffer(500, timer);
+        testRingBuffer(1000, timer);
     }
 
     private static void testThreadPoolPerRowTask(int row, int col, Timer timer) throws InterruptedException {
@@ -72,11 +111,139 @@ public class MultiplyWithThreadPool {
         b2.assignRandom();
 
         timer.start();
-        assignPerChunk(a2, b2);
+        assignPerChunk(a2, b2, new ProgressTracker(new ConsoleProgressListener(row + "*" + col + " per chunk"), 500));
         elapsedTime = timer.end();
         System.out.println(row +"*" +col +" Time taken with Thread pool: " + elapsedTime + " ms");
     }
 
+    private static void testSubmitThroughput(int count) throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Runnable[] tasks = new Runnable[1024];
+
+        for (int round = 0; round < 3; round++) { // First rounds warm up the JIT
+            ExecutorService jdk = Executors.newFixedThreadPool(threads);
+            double jdkRate = submitRate(jdk, count, tasks, false);
+            jdk.shutdown();
+
+            RingBufferExecutor ring = new RingBufferExecutor(threads);
+            double ringRate = submitRate(ring, count, tasks, false);
+            double batchRate = submitRate(ring, count, tasks, true);
+            ring.shutdown();
+
+            System.out.printf("%d empty tasks: JDK pool %.2f M tasks/s, ring buffer %.2f M tasks/s, ring buffer batched %.2f M tasks/s\n",
+                    count, jdkRate, ringRate, batchRate);
+        }
+    }
+
+    /*
+    Millions of tasks per second submitted and run, from the first submit
+    until the last task has finished
+     */
+    private static double submitRate(ExecutorService executor, int count, Runnable[] batch, boolean batched) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(count);
+        Runnable task = done::countDown;
+        Arrays.fill(batch, task);
+
+        long start = System.nanoTime();
+        for(int submitted=0 ; submitted<count ; submitted+=batch.length){
+            int size = Math.min(batch.length, count - submitted);
+            if(batched) {
+                executeAll(executor, batch, 0, size);
+            } else {
+                for(int i=0 ; i<size ; i++){
+                    executor.execute(task);
+                }
+            }
+        }
+        done.await();
+        return count / ((System.nanoTime() - start) / 1000.0);
+    }
+
+    private static void testRingBuffer(int size, Timer timer) throws InterruptedException {
+        Matrix a2 = new Matrix(size, size);
+        Matrix b2 = new Matrix(size, size);
+        a2.assignRandom();
+        b2.assignRandom();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        ExecutorService jdk = Executors.newFixedThreadPool(threads);
+        RingBufferExecutor ring = new RingBufferExecutor(threads);
+        try {
+            timer.start();
+            assignPerRow(a2, b2, jdk);
+            long jdkRow = timer.end();
+            timer.start();
+            assignPerRow(a2, b2, ring);
+            long ringRow = timer.end();
+
+            timer.start();
+            assignPerElement(a2, b2, jdk);
+            long jdkElement = timer.end();
+            timer.start();
+            assignPerElement(a2, b2, ring);
+            long ringElement = timer.end();
+
+            System.out.println(size + "*" + size + " per row: JDK pool " + jdkRow + " ms, ring buffer " + ringRow + " ms"
+                    + "; per element: JDK pool " + jdkElement + " ms, ring buffer " + ringElement + " ms");
+        } finally {
+            jdk.shutdown();
+            ring.shutdown();
+        }
+    }
+
+    private static void testElementVsTile(int size, Timer timer) throws InterruptedException {
+        Matrix a2 = new Matrix(size, size);
+        Matrix b2 = new Matrix(size, size);
+        a2.assignRandom();
+        b2.assignRandom();
+
+        TaskStats elementStats = new TaskStats();
+        timer.start();
+        assignPerElement(a2, b2, elementStats);
+        long elementTime = timer.end();
+        System.out.println(size + "*" + size + " Time taken per element: " + elementTime + " ms, " + elementStats);
+
+        TaskStats tileStats = new TaskStats();
+        timer.start();
+        assignPerTile(a2, b2, KernelRegistry.IJK, TILES_PER_THREAD, tileStats);
+        long tileTime = timer.end();
+        System.out.println(size + "*" + size + " Time taken per tile: " + tileTime + " ms, " + tileStats);
+    }
+
+    private static void testSchedules(int size, Timer timer, boolean busyHost) throws InterruptedException {
+        Matrix a2 = new Matrix(size, size);
+        Matrix b2 = new Matrix(size, size);
+        a2.assignRandom();
+        b2.assignRandom();
+        Matrix expected = a2.multiplication(b2); // Sequential result to verify against
+
+        Thread busy = null;
+        if(busyHost) {
+            busy = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.onSpinWait();
+                }
+            });
+        }
+
+        for (LoopScheduler.Schedule schedule : LoopScheduler.Schedule.values()) {
+            timer.start();
+            Matrix result = assignScheduled(a2, b2, schedule);
+            long elapsedTime = timer.end();
+
+            double maxError = 0;
+            for (int i = 0; i < size; i++) {
+                for (int j = 0; j < size; j++) {
+                    maxError = Math.max(maxError, Math.abs(result.matrix[i][j] - expected.matrix[i][j]));
+                }
+            }
+            System.out.println(size + "*" + size + (busyHost ? " (busy host)" : "") + " Time taken with " + schedule
+                    + " schedule: " + elapsedTime + " ms, max error vs. sequential: " + maxError);
+        }
+
+        if(busy != null) busy.interrupt();
+    }
+
     private static void testThreadPoolPerElementTask(int row, int col, Timer timer) throws InterruptedException {
         long elapsedTime;
         Matrix a2 = new Matrix(row, col);
@@ -90,15 +257,45 @@ public class MultiplyWithThreadPool {
         System.out.println(row +"*" +col +" Time taken with Thread pool: " + elapsedTime + " ms");
     }
 
+    /*
+    Pool the engines in this class create per call: a RingBufferExecutor
+    when -Dmatrix.executor=ring, else the JDK fixed thread pool
+     */
+    static ExecutorService newExecutor(int threads) {
+        if("ring".equals(System.getProperty(EXECUTOR_PROPERTY))) {
+            return new RingBufferExecutor(threads);
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    /*
+    Submit tasks[from..to) to executor, in one batch when it is a
+    RingBufferExecutor
+     */
+    static void executeAll(ExecutorService executor, Runnable[] tasks, int from, int to) {
+        if(executor instanceof RingBufferExecutor ring) {
+            ring.executeAll(tasks, from, to);
+        } else {
+            for(int i=from ; i<to ; i++){
+                executor.execute(tasks[i]);
+            }
+        }
+    }
+
     /*
     Assigning Per-Row Tasks
      */
     public static Matrix assignPerRow(Matrix A, Matrix B) throws InterruptedException {
+        return assignPerRow(A, B, ProgressTracker.NONE);
+    }
+
+    public static Matrix assignPerRow(Matrix A, Matrix B, ProgressTracker progress) throws InterruptedException {
         if(A.col != B.row) return null;
         Matrix result = new Matrix(A.row, B.col);
+        progress.begin(A.row);
 
         int threads = Runtime.getRuntime().availableProcessors(); //Get numbers of threads/cores available for this device
-        ExecutorService executor = Executors.newFixedThreadPool(threads); //Create a new fixed thread pool use all available cores
+        ExecutorService executor = newExecutor(threads); //Create a new fixed thread pool use all available cores
 
         for (int i = 0; i < A.row; i++) {
             final int row = i;
@@ -110,12 +307,14 @@ public class MultiplyWithThreadPool {
                     }
                     result.matrix[row][j] = sum; // No need to synchronize if each thread writes to its own row
                 }
+                progress.advance(1);
             });
         }
 
         executor.shutdown();
         executor.awaitTermination(1, TimeUnit.HOURS);
 
+        progress.finish();
         return result;
     }
 
@@ -123,26 +322,32 @@ public class MultiplyWithThreadPool {
     Assigning Per-Chunk Tasks
      */
     public static Matrix assignPerChunk(Matrix A, Matrix B) throws InterruptedException {
+        return assignPerChunk(A, B, ProgressTracker.NONE);
+    }
+
+    public static Matrix assignPerChunk(Matrix A, Matrix B, ProgressTracker progress) throws InterruptedException {
         if(A.col != B.row) return null;
         Matrix result = new Matrix(A.row, B.col);
+        progress.begin(A.row);
 
         int threads = Runtime.getRuntime().availableProcessors(); //Get numbers of threads/cores available for this device
         final int chunkSize = (int) Math.ceil((double)A.row/threads);
-        ExecutorService executor = Executors.newFixedThreadPool(threads); //Create a new fixed thread pool use all available cores
+        ExecutorService executor = newExecutor(threads); //Create a new fixed thread pool use all available cores
 
-        for(int task=0 ; task<chunkSize ; task++){
-            final int startRow = task * chunkSize;
+        for(int startRow=0 ; startRow<A.row ; startRow+=chunkSize){ // One task per chunk of rows
+            final int from = startRow;
             final int endRow = Math.min(startRow + chunkSize, A.row);
 
             executor.execute(() -> {
-                for(int row=startRow ; row<endRow ; row++){
+                for(int row=from ; row<endRow ; row++){
                     for(int col=0 ; col<B.col ; col++){
                         double sum=0;
                         for(int j=0 ; j<A.col ; j++){
-                            sum += A.matrix[row][j] * B.matrix[col][j];
+                            sum += A.matrix[row][j] * B.matrix[j][col];
                         }
                         result.matrix[row][col] = sum; // No need to synchronize if each thread writes to its own row
                     }
+                    progress.advance(1);
                 }
             });
         }
@@ -150,6 +355,232 @@ public class MultiplyWithThreadPool {
         executor.shutdown();
         executor.awaitTermination(1, TimeUnit.HOURS);
 
+        progress.finish();
+        return result;
+    }
+
+    /*
+    Assigning rows to the pool with a LoopScheduler schedule. STATIC gives
+    every thread one fixed slice like assignPerChunk; DYNAMIC and GUIDED let
+    threads that finish early take more rows, so a thread slowed down by a
+    busy core no longer holds up the end of the product
+     */
+    public static Matrix assignScheduled(Matrix A, Matrix B, LoopScheduler.Schedule schedule) throws InterruptedException {
+        return assignScheduled(A, B, KernelRegistry.IJK, schedule, 1, ProgressTracker.NONE);
+    }
+
+    public static Matrix assignScheduled(Matrix A, Matrix B, MatrixKernel kernel, LoopScheduler.Schedule schedule,
+            int chunkSize, ProgressTracker progress) throws InterruptedException {
+        if(A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+        final double[][] b = kernel.transposedB() ? B.transpose().matrix : B.matrix; // Prepared once, shared by every thread
+        progress.begin(A.row);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = newExecutor(threads);
+        try {
+            LoopScheduler.parallelFor(executor, threads, A.row, schedule, chunkSize, (from, to) -> {
+                kernel.multiplyRows(A.matrix, b, result.matrix, from, to, MatrixKernel.DEFAULT_BLOCK_SIZE);
+                progress.advance(to - from);
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        progress.finish();
+        return result;
+    }
+
+    /*
+    Assigning Per-Chunk Tasks into an existing result on a caller-owned pool.
+    Nothing is created per call except one latch and one task per chunk, so a
+    loop over same-shaped matrices can reuse C (e.g. leased from a
+    MatrixWorkspace) and keep the executor alive between calls
+     */
+    public static void multiplyInto(Matrix A, Matrix B, Matrix C, ExecutorService executor) throws InterruptedException {
+        multiplyInto(A, B, C, KernelRegistry.IJK, executor);
+    }
+
+    /*
+    Same as above with every chunk computed by a pluggable kernel. Kernels
+    accumulate, so each chunk zeroes its own rows of C first. A kernel that
+    reads B transposed gets one transposed copy per call
+     */
+    public static void multiplyInto(Matrix A, Matrix B, Matrix C, MatrixKernel kernel, ExecutorService executor) throws InterruptedException {
+        multiplyInto(A, B, C, kernel, executor, null);
+    }
+
+    /*
+    Same as above, but a kernel that reads B transposed takes the copy from
+    cache (when not null), so a B multiplied by many A's is transposed once
+    per version of B rather than once per call
+     */
+    public static void multiplyInto(Matrix A, Matrix B, Matrix C, MatrixKernel kernel, ExecutorService executor,
+            OperandCache cache) throws InterruptedException {
+        if(A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        final int chunkSize = Math.max(1, (int) Math.ceil((double)A.row/threads));
+        final double[][] b = !kernel.transposedB() ? B.matrix
+                : cache != null ? cache.transposed(B).matrix : B.transpose().matrix;
+        CountDownLatch done = new CountDownLatch((A.row + chunkSize - 1) / chunkSize);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        for(int startRow=0 ; startRow<A.row ; startRow+=chunkSize){
+            final int from = startRow;
+            final int to = Math.min(startRow + chunkSize, A.row);
+            executor.execute(() -> {
+                try {
+                    for(int row=from ; row<to ; row++){
+                        Arrays.fill(C.matrix[row], 0.0);
+                    }
+                    kernel.multiplyRows(A.matrix, b, C.matrix, from, to, MatrixKernel.DEFAULT_BLOCK_SIZE);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown(); // Always count down so a failure cannot hang the caller
+                }
+            });
+        }
+
+        done.await();
+        C.markModified();
+        LoopScheduler.rethrow(failure.get());
+    }
+
+    /*
+    Same as above on a persistent WorkerTeam instead of an executor: the
+    rows are split between the members with a DYNAMIC schedule, so a call
+    allocates no tasks and usually finds the members still spinning from
+    the previous one
+     */
+    public static void multiplyInto(Matrix A, Matrix B, Matrix C, MatrixKernel kernel, WorkerTeam team) {
+        if(A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        final double[][] b = kernel.transposedB() ? B.transpose().matrix : B.matrix;
+        final int chunkSize = Math.max(1, A.row / (team.size() * TILES_PER_THREAD));
+        team.parallelFor(0, A.row, LoopScheduler.Schedule.DYNAMIC, chunkSize, (from, to) -> {
+            for(int row=from ; row<to ; row++){
+                Arrays.fill(C.matrix[row], 0.0);
+            }
+            kernel.multiplyRows(A.matrix, b, C.matrix, from, to, MatrixKernel.DEFAULT_BLOCK_SIZE);
+        });
+        C.markModified();
+    }
+
+    public static void multiplyInto(FlatMatrix A, FlatMatrix B, FlatMatrix C, ExecutorService executor) throws InterruptedException {
+        if(A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        final int chunkSize = Math.max(1, (int) Math.ceil((double)A.row/threads));
+        CountDownLatch done = new CountDownLatch((A.row + chunkSize - 1) / chunkSize);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        C.clear();
+
+        for(int startRow=0 ; startRow<A.row ; startRow+=chunkSize){
+            final int from = startRow;
+            final int to = Math.min(startRow + chunkSize, A.row);
+            executor.execute(() -> {
+                try {
+                    FlatMatrix.multiplyRows(A, B, C, from, to);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown(); // Always count down so a failure cannot hang the caller
+                }
+            });
+        }
+
+        done.await();
+        C.markModified();
+        LoopScheduler.rethrow(failure.get());
+    }
+
+    /*
+    Assigning Per-Row Tasks on flat storage
+     */
+    public static FlatMatrix assignPerRow(FlatMatrix A, FlatMatrix B) throws InterruptedException {
+        if(A.col != B.row) return null;
+        FlatMatrix result = new FlatMatrix(A.row, B.col);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = newExecutor(threads);
+
+        for (int i = 0; i < A.row; i++) {
+            final int row = i;
+            executor.execute(() -> FlatMatrix.multiplyRows(A, B, result, row, row + 1));
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
+        return result;
+    }
+
+    /*
+    Assigning Per-Chunk Tasks with every chunk computed by a pluggable kernel
+     */
+    public static Matrix assignPerChunk(Matrix A, Matrix B, MatrixKernel kernel) throws InterruptedException {
+        if(A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = newExecutor(threads);
+        multiplyInto(A, B, result, kernel, executor);
+        executor.shutdown();
+
+        return result;
+    }
+
+    /*
+    Assigning Per-Chunk Tasks on flat storage
+     */
+    public static FlatMatrix assignPerChunk(FlatMatrix A, FlatMatrix B) throws InterruptedException {
+        if(A.col != B.row) return null;
+        FlatMatrix result = new FlatMatrix(A.row, B.col);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        final int chunkSize = (int) Math.ceil((double)A.row/threads);
+        ExecutorService executor = newExecutor(threads);
+
+        for(int startRow=0 ; startRow<A.row ; startRow+=chunkSize){
+            final int from = startRow;
+            final int to = Math.min(startRow + chunkSize, A.row);
+            executor.execute(() -> FlatMatrix.multiplyRows(A, B, result, from, to));
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
+        return result;
+    }
+
+    /*
+    Assigning Per-Chunk Tasks on single-precision storage
+     */
+    public static FloatMatrix assignPerChunk(FloatMatrix A, FloatMatrix B, boolean accumulateDouble) throws InterruptedException {
+        if(A.col != B.row) return null;
+        FloatMatrix result = new FloatMatrix(A.row, B.col);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        final int chunkSize = (int) Math.ceil((double)A.row/threads);
+        ExecutorService executor = newExecutor(threads);
+
+        for(int startRow=0 ; startRow<A.row ; startRow+=chunkSize){
+            final int from = startRow;
+            final int to = Math.min(startRow + chunkSize, A.row);
+            executor.execute(() -> FloatMatrix.multiplyRows(A, B, result, from, to, accumulateDouble));
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
         return result;
     }
 
@@ -157,22 +588,179 @@ public class MultiplyWithThreadPool {
     Assigning Per-Element Tasks
      */
     public static Matrix assignPerElement(Matrix A, Matrix B) throws InterruptedException {
+        return assignPerElement(A, B, ProgressTracker.NONE);
+    }
+
+    public static Matrix assignPerElement(Matrix A, Matrix B, ProgressTracker progress) throws InterruptedException {
         if(A.col != B.row) return null;
         Matrix result = new Matrix(A.row, B.col);
+        progress.begin((long) A.row * B.col);
 
         int threads = Runtime.getRuntime().availableProcessors(); //Get numbers of threads/cores available for this device
-        ExecutorService executor = Executors.newFixedThreadPool(threads); //Create a new fixed thread pool use all available cores
+        ExecutorService executor = newExecutor(threads); //Create a new fixed thread pool use all available cores
+
+        for (int i = 0; i < A.row; i++) {
+            for (int j = 0; j < B.col; j++) {
+                final int row = i;
+                final int col = j;
+                executor.execute(() -> {
+                    double sum=0;
+                    for (int k = 0; k < A.col; k++) {
+                        sum += A.matrix[row][k] * B.matrix[k][col];
+                    }
+                    result.matrix[row][col] = sum;
+                    progress.advance(1);
+                });
+            }
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
+        progress.finish();
+        return result;
+    }
+
+    /*
+    Assigning Per-Row Tasks on a caller-owned pool, waiting on a latch
+    instead of shutting the pool down, so the same pool serves many calls
+     */
+    public static Matrix assignPerRow(Matrix A, Matrix B, ExecutorService executor) throws InterruptedException {
+        if(A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+        CountDownLatch done = new CountDownLatch(A.row);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable[] tasks = new Runnable[A.row];
+
+        for (int i = 0; i < A.row; i++) {
+            final int row = i;
+            tasks[i] = () -> {
+                try {
+                    for (int j = 0; j < B.col; j++) {
+                        double sum=0;
+                        for (int k = 0; k < A.col; k++) {
+                            sum += A.matrix[row][k] * B.matrix[k][j];
+                        }
+                        result.matrix[row][j] = sum;
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown(); // Always count down so a failure cannot hang the caller
+                }
+            };
+        }
+        executeAll(executor, tasks, 0, A.row);
+
+        done.await();
+        LoopScheduler.rethrow(failure.get());
+        return result;
+    }
+
+    /*
+    Assigning Per-Element Tasks on a caller-owned pool; the tasks of each
+    result row are submitted as one batch
+     */
+    public static Matrix assignPerElement(Matrix A, Matrix B, ExecutorService executor) throws InterruptedException {
+        if(A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+        CountDownLatch done = new CountDownLatch(A.row * B.col);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable[] tasks = new Runnable[B.col];
 
         for (int i = 0; i < A.row; i++) {
             for (int j = 0; j < B.col; j++) {
                 final int row = i;
                 final int col = j;
+                tasks[j] = () -> {
+                    try {
+                        double sum=0;
+                        for (int k = 0; k < A.col; k++) {
+                            sum += A.matrix[row][k] * B.matrix[k][col];
+                        }
+                        result.matrix[row][col] = sum;
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        done.countDown(); // Always count down so a failure cannot hang the caller
+                    }
+                };
+            }
+            executeAll(executor, tasks, 0, B.col);
+        }
+
+        done.await();
+        LoopScheduler.rethrow(failure.get());
+        return result;
+    }
+
+    /*
+    Assigning Per-Element Tasks, recording every task's queue wait and
+    compute time into stats
+     */
+    public static Matrix assignPerElement(Matrix A, Matrix B, TaskStats stats) throws InterruptedException {
+        if(A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = newExecutor(threads);
+
+        for (int i = 0; i < A.row; i++) {
+            for (int j = 0; j < B.col; j++) {
+                final int row = i;
+                final int col = j;
+                final long submitted = System.nanoTime();
                 executor.execute(() -> {
+                    long started = System.nanoTime();
                     double sum=0;
                     for (int k = 0; k < A.col; k++) {
                         sum += A.matrix[row][k] * B.matrix[k][col];
                     }
                     result.matrix[row][col] = sum;
+                    stats.record(submitted, started, System.nanoTime());
+                });
+            }
+        }
+
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
+        return result;
+    }
+
+    /*
+    Assigning Per-Tile Tasks: the task unit is a 2D tile of the result
+    instead of one element, sized so there are about TILES_PER_THREAD tiles
+    per thread. A 5000x5000 product becomes a few dozen tasks instead of 25
+    million Runnables through the executor queue, and each tile reuses the
+    rows of A and columns of B it loads
+     */
+    public static Matrix assignPerTile(Matrix A, Matrix B) throws InterruptedException {
+        return assignPerTile(A, B, KernelRegistry.IJK, TILES_PER_THREAD, null);
+    }
+
+    /*
+    Same as above with a pluggable kernel and tile count, recording every
+    tile's queue wait and compute time into stats when it is not null
+     */
+    public static Matrix assignPerTile(Matrix A, Matrix B, MatrixKernel kernel, int tilesPerThread, TaskStats stats) throws InterruptedException {
+        if(A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+        final double[][] b = kernel.transposedB() ? B.transpose().matrix : B.matrix; // Prepared once, shared by every tile
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        int[] tile = tileShape(A.row, B.col, threads * tilesPerThread);
+        ExecutorService executor = newExecutor(threads);
+
+        for(int startRow=0 ; startRow<A.row ; startRow+=tile[0]){
+            for(int startCol=0 ; startCol<B.col ; startCol+=tile[1]){
+                final int fromRow = startRow, toRow = Math.min(startRow + tile[0], A.row);
+                final int fromCol = startCol, toCol = Math.min(startCol + tile[1], B.col);
+                final long submitted = System.nanoTime();
+                executor.execute(() -> {
+                    long started = System.nanoTime();
+                    kernel.multiplyTile(A.matrix, b, result.matrix, fromRow, toRow, fromCol, toCol, MatrixKernel.DEFAULT_BLOCK_SIZE);
+                    if(stats != null) stats.record(submitted, started, System.nanoTime());
                 });
             }
         }
@@ -182,4 +770,16 @@ public class MultiplyWithThreadPool {
 
         return result;
     }
+
+    /*
+    Rows and columns of a tile that cuts a rows x cols result into about
+    tiles pieces, as close to square as the shape allows: the grid gets
+    sqrt(tiles * rows / cols) tile rows and enough tile columns for the rest
+     */
+    static int[] tileShape(int rows, int cols, int tiles) {
+        int gridRows = (int) Math.round(Math.sqrt((double) tiles * rows / cols));
+        gridRows = Math.max(1, Math.min(Math.min(rows, tiles), gridRows));
+        int gridCols = Math.max(1, Math.min(cols, (tiles + gridRows - 1) / gridRows));
+        return new int[]{(rows + gridRows - 1) / gridRows, (cols + gridCols - 1) / gridCols};
+    }
 }
@@ -1,7 +1,17 @@
 package Version2;
 import Configuration.*;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 public class MultiplyWithThreads {
+    static final int DEFAULT_ROWS_PER_TASK = 16; // Rows computed by one virtual thread
+
     public static void main(String[] args) throws InterruptedException {
         Timer timer = new Timer();
 
@@ -17,6 +27,14 @@ public class MultiplyWithThreads {
 
         // 5000x5000 start
         testMultiplyWithThreads(5000, 5000, timer);
+
+        /*
+        Platform Threads vs. Virtual Threads vs. Thread Pool
+         */
+        System.out.println("Platform Threads vs. Virtual Threads vs. Thread Pool");
+        compareThreadKinds(500, timer);
+        compareThreadKinds(1000, timer);
+        compareThreadKinds(2000, timer);
     }
 
     private static void testMultiplyWithThreads(int row, int col, Timer timer) throws InterruptedException {
@@ -32,12 +50,64 @@ public class MultiplyWithThreads {
         System.out.println(row +"*" +col +" Time taken with Threads: " + elapsedTime + " ms");
     }
 
+    private static void compareThreadKinds(int size, Timer timer) throws InterruptedException {
+        Matrix a2 = new Matrix(size, size);
+        Matrix b2 = new Matrix(size, size);
+        a2.assignRandom();
+        b2.assignRandom();
+
+        timer.start();
+        multiplyWithThreads(a2, b2);
+        long platform = timer.end();
+
+        timer.start();
+        multiplyWithVirtualThreads(a2, b2, KernelRegistry.IJK, 1, ProgressTracker.NONE);
+        long virtualPerRow = timer.end();
+
+        timer.start();
+        multiplyWithVirtualThreads(a2, b2);
+        long virtualPerBlock = timer.end();
+
+        timer.start();
+        MultiplyWithThreadPool.assignPerRow(a2, b2);
+        long pool = timer.end();
+
+        System.out.println(size + "*" + size + " platform thread per row: " + platform + " ms"
+                + ", virtual thread per row: " + virtualPerRow + " ms"
+                + ", virtual thread per " + DEFAULT_ROWS_PER_TASK + " rows: " + virtualPerBlock + " ms"
+                + ", thread pool per row: " + pool + " ms");
+
+        // Creation overhead alone: the same number of threads with no work
+        System.out.printf("%d*%d start+join of %d empty threads: platform %.2f ms, virtual %.2f ms\n",
+                size, size, size, startAndJoin(size, Thread.ofPlatform()), startAndJoin(size, Thread.ofVirtual()));
+    }
+
+    /*
+    Time in ms to start count threads that do nothing and join them all
+     */
+    private static double startAndJoin(int count, Thread.Builder builder) throws InterruptedException {
+        Thread[] threads = new Thread[count];
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            threads[i] = builder.start(() -> { });
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
     /*
     Multiplication using Threads
      */
     public static Matrix multiplyWithThreads(Matrix A, Matrix B) throws InterruptedException {
+        return multiplyWithThreads(A, B, ProgressTracker.NONE);
+    }
+
+    public static Matrix multiplyWithThreads(Matrix A, Matrix B, ProgressTracker progress) throws InterruptedException {
         if (A.col != B.row) return null; //Return null kalau tak valid for multiplication
         Matrix result = new Matrix(A.row, B.col); // New matrix to hold result of multiplication
+        progress.begin(A.row);
         Thread[] threads = new Thread[A.row]; // Create array of threads with the size of first array's row
 
         for (int row = 0; row < A.row; row++) { // Iterate each row of first array
@@ -53,6 +123,7 @@ public class MultiplyWithThreads {
                     }
                     result.matrix[i][j] = sum;
                 }
+                progress.advance(1);
             });
             threads[row].start(); // Start the thread
         }
@@ -61,6 +132,130 @@ public class MultiplyWithThreads {
             t.join(); // Wait until every thread completed
         }
 
+        progress.finish();
         return result;
     }
+
+    /*
+    Multiplication using Threads, one per row, with the row computed by a
+    pluggable kernel (see KernelRegistry)
+     */
+    public static Matrix multiplyWithThreads(Matrix A, Matrix B, MatrixKernel kernel) throws InterruptedException {
+        if (A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+        double[][] b = kernel.transposedB() ? B.transpose().matrix : B.matrix; // Prepared once, shared by every thread
+        Thread[] threads = new Thread[A.row];
+
+        for (int row = 0; row < A.row; row++) {
+            final int i = row;
+            threads[row] = new Thread(() -> kernel.multiplyRows(A.matrix, b, result.matrix, i, i + 1, MatrixKernel.DEFAULT_BLOCK_SIZE));
+            threads[row].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        return result;
+    }
+
+    /*
+    Multiplication using Threads on flat storage
+     */
+    public static FlatMatrix multiplyWithThreads(FlatMatrix A, FlatMatrix B) throws InterruptedException {
+        if (A.col != B.row) return null;
+        FlatMatrix result = new FlatMatrix(A.row, B.col);
+        Thread[] threads = new Thread[A.row];
+
+        for (int row = 0; row < A.row; row++) {
+            final int i = row;
+            threads[row] = new Thread(() -> FlatMatrix.multiplyRows(A, B, result, i, i + 1));
+            threads[row].start();
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        return result;
+    }
+
+    /*
+    Multiplication using virtual threads, one per block of DEFAULT_ROWS_PER_TASK
+    rows
+     */
+    public static Matrix multiplyWithVirtualThreads(Matrix A, Matrix B) throws InterruptedException {
+        return multiplyWithVirtualThreads(A, B, KernelRegistry.IJK, DEFAULT_ROWS_PER_TASK, ProgressTracker.NONE);
+    }
+
+    /*
+    Multiplication using virtual threads, one per block of rowsPerTask rows.
+    A virtual thread is a small heap object scheduled on a few carrier
+    threads, not an OS thread, so a 5000 row product no longer creates 5000
+    OS threads. The first task to fail records its failure and cancels all
+    the others itself, so they are interrupted and stop before their next
+    row however far they are from the failed one; tasks that have not
+    started yet see the failure and return at once. The executor is closed
+    before returning, which waits for every thread, so the result (or the
+    first failure) is always seen after all threads are done
+     */
+    public static Matrix multiplyWithVirtualThreads(Matrix A, Matrix B, MatrixKernel kernel, int rowsPerTask,
+            ProgressTracker progress) throws InterruptedException {
+        if (A.col != B.row) return null;
+        Matrix result = new Matrix(A.row, B.col);
+        double[][] b = kernel.transposedB() ? B.transpose().matrix : B.matrix; // Prepared once, shared by every thread
+        progress.begin(A.row);
+
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicReferenceArray<Future<?>> tasks = new AtomicReferenceArray<>((A.row + rowsPerTask - 1) / rowsPerTask);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int start = 0; start < A.row; start += rowsPerTask) {
+                final int startRow = start;
+                final int endRow = Math.min(start + rowsPerTask, A.row);
+                tasks.set(start / rowsPerTask, executor.submit(() -> {
+                    try {
+                        for (int i = startRow; i < endRow && failure.get() == null
+                                && !Thread.currentThread().isInterrupted(); i++) {
+                            kernel.multiplyRows(A.matrix, b, result.matrix, i, i + 1, MatrixKernel.DEFAULT_BLOCK_SIZE);
+                            progress.advance(1);
+                        }
+                    } catch (Throwable t) {
+                        if (failure.compareAndSet(null, t)) {
+                            cancelAll(tasks); // Stop the others now, not when the caller reaches this task
+                        }
+                    }
+                }));
+            }
+
+            try {
+                for (int i = 0; i < tasks.length(); i++) {
+                    try {
+                        tasks.get(i).get();
+                    } catch (CancellationException e) {
+                        // Cancelled by the failed task
+                    } catch (ExecutionException e) {
+                        failure.compareAndSet(null, e.getCause()); // Tasks catch their own failures; kept for safety
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancelAll(tasks); // Do not leave the rest running for a caller that gave up
+                throw e;
+            }
+        } // close() waits for every thread, cancelled ones included
+        LoopScheduler.rethrow(failure.get());
+
+        progress.finish();
+        return result;
+    }
+
+    /*
+    Cancel every task submitted so far; later ones see the failure before
+    their first row
+     */
+    private static void cancelAll(AtomicReferenceArray<Future<?>> tasks) {
+        for (int i = 0; i < tasks.length(); i++) {
+            Future<?> task = tasks.get(i);
+            if (task != null) task.cancel(true);
+        }
+    }
 }
@@ -0,0 +1,312 @@
+package Version2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+Fixed pool of worker threads fed from a preallocated, lock-free, bounded
+multi-producer multi-consumer ring buffer (the Vyukov queue).
+Executors.newFixedThreadPool puts every task through a LinkedBlockingQueue,
+which takes a lock and allocates a node per task; here submitting a task
+is one CAS on the tail counter plus a write into a slot that already
+exists, and taking one is one CAS on the head counter.
+
+Every slot carries a sequence number saying whose turn it is: pos when the
+slot is free for the producer of position pos, pos + 1 once that task is
+published for the consumer, pos + capacity once the consumer has emptied
+it for the next lap. A producer or consumer that wins the CAS for a
+position owns its slot until it advances the sequence.
+
+Idle workers spin on the queue for SPIN_LIMIT polls and then park; a
+producer only pays for an unpark when some worker is actually parked.
+executeAll() claims a whole batch of slots with a single CAS and wakes at
+most one worker per task. When the ring is full a submitter spins for
+SUBMIT_SPIN_LIMIT attempts and then runs the task itself, the same back
+pressure as ThreadPoolExecutor.CallerRunsPolicy, so a full ring can never
+deadlock workers that submit tasks of their own.
+ */
+public class RingBufferExecutor extends AbstractExecutorService {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    static final int SPIN_LIMIT = 1 << 10; // Empty polls before an idle worker parks
+    static final int SUBMIT_SPIN_LIMIT = 1 << 8; // Full-ring retries before the submitter runs the task itself
+
+    private final Runnable[] buffer;
+    private final AtomicLongArray sequence;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // Next position to take
+    private final AtomicLong tail = new AtomicLong(); // Next position to fill
+
+    private final Worker[] workers;
+    private final AtomicInteger parkedWorkers = new AtomicInteger();
+    private final AtomicInteger submitters = new AtomicInteger(); // Callers between the shutdown check and the publish
+    private final CountDownLatch terminated;
+    private volatile boolean shutdown;
+
+    public RingBufferExecutor(int threads) {
+        this(threads, DEFAULT_CAPACITY);
+    }
+
+    /*
+    threads workers on a ring of capacity slots, rounded up to a power of two
+     */
+    public RingBufferExecutor(int threads, int capacity) {
+        if(threads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Threads and capacity must be positive");
+        }
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        buffer = new Runnable[size];
+        sequence = new AtomicLongArray(size);
+        for(int i=0 ; i<size ; i++){
+            sequence.set(i, i);
+        }
+        mask = size - 1;
+
+        terminated = new CountDownLatch(threads);
+        workers = new Worker[threads];
+        for(int i=0 ; i<threads ; i++){
+            workers[i] = new Worker();
+            workers[i].thread = Thread.ofPlatform().name("ring-worker-" + i).daemon().unstarted(workers[i]);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if(task == null) throw new NullPointerException();
+        submitters.incrementAndGet();
+        try {
+            if(shutdown) throw new RejectedExecutionException("RingBufferExecutor has been shut down");
+            for(int spins=0 ; !offer(task) ; spins++){
+                if(spins >= SUBMIT_SPIN_LIMIT) {
+                    task.run(); // Ring is full: run it here instead of waiting
+                    return;
+                }
+                Thread.onSpinWait();
+            }
+        } finally {
+            submitters.decrementAndGet();
+        }
+        wake(1);
+    }
+
+    /*
+    Submit tasks[from..to), claiming as many slots as fit with one CAS per
+    batch instead of one per task
+     */
+    public void executeAll(Runnable[] tasks, int from, int to) {
+        submitters.incrementAndGet();
+        try {
+            if(shutdown) throw new RejectedExecutionException("RingBufferExecutor has been shut down");
+            int spins = 0;
+            while (from < to) {
+                int room = buffer.length - (int) (tail.get() - head.get());
+                int count = Math.min(to - from, Math.max(1, room)); // Whole batch if it fits, else what is free
+                if(offerBatch(tasks, from, count)) {
+                    from += count;
+                    spins = 0;
+                    wake(count);
+                } else if(++spins >= SUBMIT_SPIN_LIMIT) {
+                    tasks[from++].run(); // Ring is full: make progress here
+                    spins = 0;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        } finally {
+            submitters.decrementAndGet();
+        }
+    }
+
+    public void executeAll(List<? extends Runnable> tasks) {
+        executeAll(tasks.toArray(new Runnable[0]), 0, tasks.size());
+    }
+
+    private boolean offer(Runnable task) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequence.get(index) - pos;
+            if(diff == 0) {
+                if(tail.compareAndSet(pos, pos + 1)) {
+                    buffer[index] = task;
+                    sequence.set(index, pos + 1); // Publish to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if(diff < 0) {
+                return false; // Slot still holds last lap's task: full
+            } else {
+                pos = tail.get(); // Another producer took this position
+            }
+        }
+    }
+
+    private boolean offerBatch(Runnable[] tasks, int from, int count) {
+        long pos = tail.get();
+        while (true) {
+            boolean free = true;
+            for(int i=0 ; i<count && free ; i++){
+                free = sequence.get((int) (pos + i) & mask) == pos + i;
+            }
+            if(!free) {
+                long current = tail.get();
+                if(current == pos) return false; // Not enough free slots
+                pos = current;
+                continue;
+            }
+            // Slots checked free stay free: only the owner of the tail can fill them
+            if(tail.compareAndSet(pos, pos + count)) {
+                for(int i=0 ; i<count ; i++){
+                    int index = (int) (pos + i) & mask;
+                    buffer[index] = tasks[from + i];
+                    sequence.set(index, pos + i + 1);
+                }
+                return true;
+            }
+            pos = tail.get();
+        }
+    }
+
+    private Runnable poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequence.get(index) - (pos + 1);
+            if(diff == 0) {
+                if(head.compareAndSet(pos, pos + 1)) {
+                    Runnable task = buffer[index];
+                    buffer[index] = null;
+                    sequence.set(index, pos + buffer.length); // Free for the next lap
+                    return task;
+                }
+                pos = head.get();
+            } else if(diff < 0) {
+                return null; // Not published yet: empty
+            } else {
+                pos = head.get(); // Another consumer took this position
+            }
+        }
+    }
+
+    private boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    /*
+    Unpark up to count parked workers
+     */
+    private void wake(int count) {
+        if(parkedWorkers.get() == 0) return;
+        for (Worker worker : workers) {
+            if(worker.parked.get() && worker.parked.compareAndSet(true, false)) {
+                parkedWorkers.decrementAndGet();
+                LockSupport.unpark(worker.thread);
+                if(--count == 0) return;
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        final AtomicBoolean parked = new AtomicBoolean();
+        Thread thread;
+
+        @Override
+        public void run() {
+            try {
+                int idle = 0;
+                while (true) {
+                    Runnable task = poll();
+                    if(task != null) {
+                        idle = 0;
+                        runTask(task);
+                    } else if(shutdown) {
+                        if(submitters.get() == 0 && isEmpty()) return; // Nothing left and nothing on its way
+                        Thread.onSpinWait();
+                    } else if(++idle < SPIN_LIMIT) {
+                        Thread.onSpinWait();
+                    } else {
+                        idle = 0;
+                        park();
+                    }
+                }
+            } finally {
+                terminated.countDown();
+            }
+        }
+
+        private void park() {
+            parked.set(true);
+            parkedWorkers.incrementAndGet();
+            // A task published before the increment was not seen by wake(): look again
+            if(isEmpty() && !shutdown) {
+                while (parked.get() && !shutdown) {
+                    LockSupport.park(RingBufferExecutor.this);
+                }
+            }
+            if(parked.compareAndSet(true, false)) {
+                parkedWorkers.decrementAndGet();
+            }
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // Report like an uncaught exception but keep the worker alive
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+            }
+            Thread.interrupted(); // Do not leak a task's interrupt into the next one
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> pending = new ArrayList<>();
+        for(Runnable task = poll() ; task != null ; task = poll()){
+            pending.add(task);
+        }
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminated.getCount() == 0;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+}
@@ -0,0 +1,61 @@
+package Version2;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Scheduling statistics of the tasks one multiplication submitted to a pool:
+how many there were, how long each sat in the executor queue between
+submission and start, and how long each then computed. Pool threads record
+into LongAdders, so recording does not make the tasks contend on a lock
+ */
+public class TaskStats {
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder computeNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxComputeNanos = new LongAccumulator(Math::max, 0);
+
+    /*
+    Record one task from System.nanoTime() readings taken when it was
+    submitted, when it started and when it finished
+     */
+    public void record(long submitted, long started, long finished) {
+        tasks.increment();
+        queueWaitNanos.add(started - submitted);
+        computeNanos.add(finished - started);
+        maxQueueWaitNanos.accumulate(started - submitted);
+        maxComputeNanos.accumulate(finished - started);
+    }
+
+    public long taskCount() {
+        return tasks.sum();
+    }
+
+    public double meanQueueWaitMillis() {
+        return mean(queueWaitNanos.sum());
+    }
+
+    public double maxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1_000_000.0;
+    }
+
+    public double meanComputeMillis() {
+        return mean(computeNanos.sum());
+    }
+
+    public double maxComputeMillis() {
+        return maxComputeNanos.get() / 1_000_000.0;
+    }
+
+    private double mean(long totalNanos) {
+        long count = tasks.sum();
+        return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d tasks, queue wait mean %.4f ms (max %.2f ms), compute mean %.4f ms (max %.2f ms)",
+                taskCount(), meanQueueWaitMillis(), maxQueueWaitMillis(), meanComputeMillis(), maxComputeMillis());
+    }
+}
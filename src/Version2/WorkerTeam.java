@@ -0,0 +1,220 @@
+package Version2;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+OpenMP-style team of persistent workers for short parallel regions.
+
+An executor or a ForkJoinPool allocates a task per piece of work, puts it
+through a queue and parks idle threads, so a 500x500 product pays for
+task objects, queue operations and unpark latency on every call. A team
+instead keeps size - 1 worker threads alive for its whole life; the thread
+that calls parallel() or parallelFor() joins in as member 0, like the
+OpenMP master thread. Starting a region publishes the body and bumps a
+generation counter; workers that finished the previous region are still
+spinning on that counter for SPIN_NANOS and start at once, and only
+workers idle for longer have parked and need an unpark. Like the barrier,
+long spins also yield, so a team larger than the free cores still moves.
+The region ends with the team's Barrier, so nothing is allocated per
+region apart from the body itself.
+
+Regions run one at a time: concurrent callers queue on the team, and a
+parallel region started from inside a region runs on the calling member
+alone. Bodies may call barrier() to synchronize all members mid-region,
+but then no member may throw before the barrier, or the others wait
+forever.
+ */
+public final class WorkerTeam implements AutoCloseable {
+    static final long SPIN_NANOS = 200_000; // How long an idle worker spins for the next region before parking
+
+    /*
+    Body of a region, run once on every member
+     */
+    public interface MemberBody {
+        void run(int member, int size);
+    }
+
+    /*
+    Reusable sense-reversing barrier: the last member to arrive resets the
+    count and flips the sense, everyone else spins until the sense differs
+    from what it read on arrival. Waiters spin with onSpinWait and, after
+    SPIN_LIMIT rounds, also yield, so an oversubscribed host still lets the
+    late member run
+     */
+    public static final class Barrier {
+        static final int SPIN_LIMIT = 1 << 12;
+
+        private final int parties;
+        private final AtomicInteger waiting;
+        private volatile boolean sense;
+
+        public Barrier(int parties) {
+            this.parties = parties;
+            this.waiting = new AtomicInteger(parties);
+        }
+
+        public void await() {
+            boolean phase = sense; // Cannot flip before this member arrives
+            if(waiting.decrementAndGet() == 0) {
+                waiting.set(parties);
+                sense = !phase;
+                return;
+            }
+            for(int spins=0 ; sense == phase ; spins++){
+                Thread.onSpinWait();
+                if(spins >= SPIN_LIMIT) Thread.yield();
+            }
+        }
+    }
+
+    private final int size;
+    private final Thread[] workers;
+    private final AtomicBoolean[] parked;
+    private final Barrier barrier;
+    private final Object regionLock = new Object();
+
+    // Current region, written by member 0 before the generation is bumped
+    private MemberBody body;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile long generation;
+    private volatile boolean closed;
+    private volatile Thread master; // Member 0 of the running region
+
+    public WorkerTeam(int size) {
+        if(size < 1) {
+            throw new IllegalArgumentException("Team size must be positive: " + size);
+        }
+        this.size = size;
+        this.barrier = new Barrier(size);
+        this.workers = new Thread[size - 1];
+        this.parked = new AtomicBoolean[size - 1];
+        for(int i=0 ; i<size - 1 ; i++){
+            final int member = i + 1;
+            parked[i] = new AtomicBoolean();
+            workers[i] = Thread.ofPlatform().name("team-worker-" + member).daemon().unstarted(() -> work(member));
+        }
+        // Workers see this before the constructor returns: start them only once every field is set.
+        // The class is final, so no subclass field can still be unset
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /*
+    Run body on every member and return once all of them have finished.
+    The first exception thrown by any member is rethrown here
+     */
+    public void parallel(MemberBody body) {
+        if(isMember()) {
+            body.run(0, 1); // Nested region: this member alone
+            return;
+        }
+        synchronized (regionLock) {
+            if(closed) throw new IllegalStateException("WorkerTeam is closed");
+            master = Thread.currentThread();
+            this.body = body;
+            failure.set(null);
+            generation++; // Publishes body to the workers
+            for(int i=0 ; i<workers.length ; i++){
+                if(parked[i].get() && parked[i].compareAndSet(true, false)) {
+                    LockSupport.unpark(workers[i]);
+                }
+            }
+
+            runMember(0);
+            this.body = null;
+            master = null;
+            LoopScheduler.rethrow(failure.get());
+        }
+    }
+
+    /*
+    Run body over [from, to) split between the members under schedule;
+    chunk is the DYNAMIC chunk size and the smallest GUIDED chunk
+     */
+    public void parallelFor(int from, int to, LoopScheduler.Schedule schedule, int chunk, LoopScheduler.RangeBody body) {
+        if(chunk < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunk);
+        }
+        final int n = to - from;
+        if(n <= 0) return;
+        final AtomicInteger next = new AtomicInteger();
+        parallel((member, members) -> LoopScheduler.runShare(schedule, member, members, n, chunk, next, failure,
+                (start, end) -> body.run(from + start, from + end)));
+    }
+
+    public void parallelFor(int from, int to, LoopScheduler.Schedule schedule, LoopScheduler.RangeBody body) {
+        parallelFor(from, to, schedule, 1, body);
+    }
+
+    /*
+    Wait until every member of the running region has reached this point
+     */
+    public void barrier() {
+        barrier.await();
+    }
+
+    private void runMember(int member) {
+        try {
+            body.run(member, size);
+        } catch (Throwable t) {
+            failure.compareAndSet(null, t);
+        }
+        barrier.await(); // End of the region
+    }
+
+    private void work(int member) {
+        AtomicBoolean flag = parked[member - 1];
+        long seen = 0;
+        while (true) {
+            // Spin for the next region, then park until member 0 starts one
+            long spinStart = System.nanoTime();
+            for(int spins=0 ; generation == seen && !closed ; spins++){
+                if((spins & 63) == 63 && System.nanoTime() - spinStart > SPIN_NANOS) {
+                    flag.set(true);
+                    if(generation == seen && !closed) { // A region started before the flag was set was missed: look again
+                        LockSupport.park(this);
+                    }
+                    flag.set(false);
+                    spinStart = System.nanoTime();
+                    spins = 0;
+                } else {
+                    Thread.onSpinWait();
+                    if(spins >= Barrier.SPIN_LIMIT) Thread.yield(); // Let member 0 run on an oversubscribed host
+                }
+            }
+            if(closed) return;
+            seen = generation;
+            runMember(member);
+        }
+    }
+
+    private boolean isMember() {
+        Thread current = Thread.currentThread();
+        if(current == master) return true;
+        for (Thread worker : workers) {
+            if(worker == current) return true;
+        }
+        return false;
+    }
+
+    /*
+    Stop the workers once the running region, if any, has finished
+     */
+    @Override
+    public void close() {
+        synchronized (regionLock) {
+            closed = true;
+        }
+        for (Thread worker : workers) {
+            LockSupport.unpark(worker);
+        }
+    }
+}
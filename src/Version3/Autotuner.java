@@ -0,0 +1,196 @@
+package Version3;
+
+import Configuration.KernelRegistry;
+import Configuration.MatrixKernel;
+import Configuration.ProgressTracker;
+import Configuration.TuningProfile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Empirical search for the best ForkJoin engine parameters on this machine.
+ *
+ * For every size class one representative size is multiplied with
+ * different parameters and the fastest setting wins. A full cross product
+ * of kernels, thresholds, block sizes and thread counts would take hours,
+ * so the search is coordinate descent: starting from the built-in defaults
+ * it picks the best kernel, then the best threshold for that kernel, then
+ * the block size, then the thread count, keeping each winner for the next
+ * step. Every candidate is timed as the minimum of a few runs after a
+ * warm-up; a candidate whose first run is already PRUNE_FACTOR times slower
+ * than the best so far is dropped without further runs. All runs with the
+ * same thread count share one ForkJoinPool of a MatrixEngine, started
+ * before any timing, so pool start-up is not part of what is measured.
+ *
+ * The result is saved as the TuningProfile of this machine, which
+ * MatrixMultiplier loads at startup, and installed in the running JVM.
+ * The tuned kernel, threshold and block size apply to every default
+ * path; the tuned thread count only to MatrixMultiplier.multiplyTuned(),
+ * as the other paths run on a pool whose size the caller chose.
+ */
+public class Autotuner {
+
+    /** Representative sizes of the default size classes */
+    public static final int[] DEFAULT_SIZES = {256, 512, 1024, 2048};
+
+    private static final int[] THRESHOLDS = {16, 32, 64, 128, 256, 512};
+    private static final int[] BLOCK_SIZES = {16, 32, 64, 128};
+    private static final int MEASUREMENT_ITERATIONS = 3;
+    private static final double PRUNE_FACTOR = 3.0;
+
+    /**
+     * Tune every size class and return the profile
+     *
+     * @param sizes Representative size of each class, in increasing order
+     */
+    public static TuningProfile tune(int[] sizes) {
+        List<TuningProfile.SizeClass> classes = new ArrayList<>();
+
+        try (MatrixEngine engine = new MatrixEngine()) {
+            // Start every pool the search times on before the first run
+            int cores = Runtime.getRuntime().availableProcessors();
+            engine.forkJoinPool(cores);
+            for (int threads = 1; threads < cores; threads *= 2) {
+                engine.forkJoinPool(threads);
+            }
+
+            for (int c = 0; c < sizes.length; c++) {
+                int size = sizes[c];
+                // Class boundaries halfway between neighbours on a log scale
+                int maxSize = c + 1 < sizes.length
+                        ? (int) Math.sqrt((double) size * sizes[c + 1])
+                        : Integer.MAX_VALUE;
+                TuningProfile.SizeClass winner = tuneSize(engine, size, maxSize);
+                System.out.println("  " + winner);
+                classes.add(winner);
+            }
+        }
+
+        return new TuningProfile(TuningProfile.machineCpuModel(), TuningProfile.machineCores(), classes);
+    }
+
+    /**
+     * Coordinate descent over kernel, threshold, block size and thread
+     * count for one size
+     */
+    private static TuningProfile.SizeClass tuneSize(MatrixEngine engine, int size, int maxSize) {
+        System.out.println("Tuning " + size + "x" + size + "...");
+        double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, 1);
+        double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, 2);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threshold = Math.min(MatrixMultiplyTask.determineDefaultThreshold(size), size);
+        int blockSize = MatrixMultiplyTask.determineDefaultBlockSize(size);
+        int threads = cores;
+        MatrixKernel kernel = KernelRegistry.DEFAULT;
+        double best = time(engine, A, B, threads, kernel, threshold, blockSize, Double.POSITIVE_INFINITY);
+
+        for (MatrixKernel candidate : KernelRegistry.available()) {
+            if (candidate == kernel) {
+                continue;
+            }
+            double time = time(engine, A, B, threads, candidate, threshold, blockSize, best);
+            if (time < best) {
+                best = time;
+                kernel = candidate;
+            }
+        }
+
+        for (int candidate : THRESHOLDS) {
+            if (candidate > size || candidate == threshold) {
+                continue;
+            }
+            double time = time(engine, A, B, threads, kernel, candidate, blockSize, best);
+            if (time < best) {
+                best = time;
+                threshold = candidate;
+            }
+        }
+
+        for (int candidate : BLOCK_SIZES) {
+            if (candidate == blockSize) {
+                continue;
+            }
+            double time = time(engine, A, B, threads, kernel, threshold, candidate, best);
+            if (time < best) {
+                best = time;
+                blockSize = candidate;
+            }
+        }
+
+        for (int candidate = 1; candidate < cores; candidate *= 2) {
+            double time = time(engine, A, B, candidate, kernel, threshold, blockSize, best);
+            if (time < best) {
+                best = time;
+                threads = candidate;
+            }
+        }
+
+        System.out.printf("  best %.2f ms%n", best);
+        return new TuningProfile.SizeClass(maxSize, threshold, blockSize, kernel.name(), threads);
+    }
+
+    /**
+     * Minimum wall time in ms of MEASUREMENT_ITERATIONS runs after one
+     * warm-up, or the first run's time if that is already past
+     * PRUNE_FACTOR * best
+     */
+    private static double time(MatrixEngine engine, double[][] A, double[][] B, int threads, MatrixKernel kernel,
+            int threshold, int blockSize, double best) {
+        ForkJoinPool pool = engine.forkJoinPool(threads);
+        multiply(pool, A, B, kernel, threshold, blockSize);
+
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long startTime = System.nanoTime();
+            multiply(pool, A, B, kernel, threshold, blockSize);
+            long endTime = System.nanoTime();
+            min = Math.min(min, (endTime - startTime) / 1_000_000.0);
+            if (min > PRUNE_FACTOR * best) {
+                break;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * What MatrixMultiplier.multiplyMatrices(A, B, threads, kernel,
+     * threshold, blockSize) does, minus building and shutting down the pool
+     */
+    private static void multiply(ForkJoinPool pool, double[][] A, double[][] B, MatrixKernel kernel,
+            int threshold, int blockSize) {
+        double[][] C = new double[A.length][B[0].length];
+        pool.invoke(new MatrixMultiplyTask(A, MatrixMultiplier.prepare(B, kernel), C, 0, A.length,
+                ProgressTracker.NONE, kernel, threshold, blockSize));
+    }
+
+    /**
+     * Tune, save the profile of this machine and make it active.
+     * Arguments, if given, replace DEFAULT_SIZES
+     */
+    public static void main(String[] args) throws IOException {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println("Matrix Multiplication Autotuner");
+        System.out.println("==============================");
+        System.out.println("CPU: " + TuningProfile.machineCpuModel() + ", " + TuningProfile.machineCores() + " cores");
+        System.out.println("Kernels: " + KernelRegistry.available());
+
+        TuningProfile profile = tune(sizes);
+        Path path = profile.saveForThisMachine();
+        MatrixMultiplier.useTuningProfile(profile);
+
+        System.out.println("\n" + profile);
+        System.out.println("Saved to " + path);
+    }
+}
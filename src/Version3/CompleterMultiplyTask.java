@@ -0,0 +1,154 @@
+package Version3;
+
+import Configuration.MatrixKernel;
+import Configuration.ProgressTracker;
+
+import java.util.concurrent.CountedCompleter;
+
+/**
+ * MatrixMultiplyTask without joins. MatrixMultiplyTask splits a tile with
+ * invokeAll, so at every level of the tree a worker allocates two tasks
+ * and then waits in join for the half that was forked; if that half was
+ * stolen the worker either helps or blocks, and a deep tree keeps a chain
+ * of such waits on every worker's stack.
+ *
+ * This task is a CountedCompleter. A tile that splits cuts its longer side
+ * into fanOut parts, forks a child for every part but the first, raises
+ * its pending count by that many and carries on with the first part
+ * itself, so a split allocates fanOut - 1 tasks rather than two per level
+ * and nothing ever waits. A leaf runs the kernel and calls tryComplete();
+ * the last child of a task to finish completes it, and the root completes
+ * once every leaf has. Whether a tile splits is decided by the same
+ * flop-cap and work-stealing-surplus rule as MatrixMultiplyTask, and a
+ * MatrixMultiplyTask.Report collects the same counts. Like the kernels,
+ * the task accumulates into C.
+ */
+public class CompleterMultiplyTask extends CountedCompleter<Void> {
+
+    /** Parts a tile is split into when the caller does not choose */
+    public static final int DEFAULT_FAN_OUT = 4;
+
+    private final double[][] A, B, C;
+    private final int startRow, endRow;
+    private final int startCol, endCol;
+    private final int threshold;
+    private final int blockSize;
+    private final int fanOut;
+    private final ProgressTracker progress;
+    private final MatrixKernel kernel;
+    private final MatrixMultiplyTask.Report report;
+    // Flop cap above which a tile always splits, derived by the root task
+    private long leafFlops;
+
+    /**
+     * Root task over the whole of C with the size heuristics of
+     * MatrixMultiplyTask
+     *
+     * @param A First matrix
+     * @param B Second matrix, transposed when kernel.transposedB() is true
+     * @param C Result matrix, accumulated into
+     * @param progress Tracker advanced by the element count of every leaf
+     * @param kernel Kernel run on every leaf tile
+     * @param fanOut Parts a splitting tile is cut into, at least 2
+     */
+    public CompleterMultiplyTask(double[][] A, double[][] B, double[][] C, ProgressTracker progress,
+            MatrixKernel kernel, int fanOut) {
+        this(A, B, C, progress, kernel, fanOut,
+                MatrixMultiplyTask.determineThreshold(MatrixMultiplier.tuningSize(A.length, C[0].length)),
+                MatrixMultiplyTask.determineBlockSize(MatrixMultiplier.tuningSize(A.length, C[0].length)), null);
+    }
+
+    /**
+     * Root task with explicit leaf and block sizes that also fills a report
+     *
+     * @param threshold Rows of a full-width band above which a tile always splits
+     * @param blockSize Block size passed to the kernel
+     * @param report Collects task and leaf counts and leaf durations, or null
+     */
+    public CompleterMultiplyTask(double[][] A, double[][] B, double[][] C, ProgressTracker progress,
+            MatrixKernel kernel, int fanOut, int threshold, int blockSize, MatrixMultiplyTask.Report report) {
+        this(null, A, B, C, 0, A.length, 0, C[0].length, progress, kernel, fanOut, threshold, blockSize, 0,
+                report);
+        if (fanOut < 2) {
+            throw new IllegalArgumentException("Fan-out must be at least 2: " + fanOut);
+        }
+    }
+
+    private CompleterMultiplyTask(CompleterMultiplyTask parent, double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, int startCol, int endCol, ProgressTracker progress, MatrixKernel kernel,
+            int fanOut, int threshold, int blockSize, long leafFlops, MatrixMultiplyTask.Report report) {
+        super(parent);
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.startRow = startRow;
+        this.endRow = endRow;
+        this.startCol = startCol;
+        this.endCol = endCol;
+        this.progress = progress;
+        this.kernel = kernel;
+        this.fanOut = fanOut;
+        this.threshold = threshold;
+        this.blockSize = blockSize;
+        this.leafFlops = leafFlops;
+        this.report = report;
+        if (report != null) {
+            report.task();
+        }
+    }
+
+    @Override
+    public void compute() {
+        int rowFrom = startRow, rowTo = endRow;
+        int colFrom = startCol, colTo = endCol;
+        int k = A[0].length;
+
+        if (leafFlops == 0) {
+            leafFlops = MatrixMultiplyTask.rootLeafFlops(rowTo - rowFrom, colTo - colFrom, k, threshold);
+        }
+
+        // Keep the first part of every split and fork the rest
+        while (true) {
+            int rows = rowTo - rowFrom;
+            int cols = colTo - colFrom;
+            long flops = 2L * rows * cols * k;
+            if (!MatrixMultiplyTask.shouldSplit(rows, cols, flops, leafFlops, report)) {
+                break;
+            }
+
+            boolean byRows = rows >= cols;
+            int from = byRows ? rowFrom : colFrom;
+            int length = byRows ? rows : cols;
+            int parts = Math.min(fanOut, length);
+            addToPendingCount(parts - 1);
+            for (int part = parts - 1; part > 0; part--) {
+                int partFrom = from + (int) ((long) length * part / parts);
+                int partTo = from + (int) ((long) length * (part + 1) / parts);
+                if (byRows) {
+                    child(partFrom, partTo, colFrom, colTo).fork();
+                } else {
+                    child(rowFrom, rowTo, partFrom, partTo).fork();
+                }
+            }
+            int firstTo = from + length / parts;
+            if (byRows) {
+                rowTo = firstTo;
+            } else {
+                colTo = firstTo;
+            }
+        }
+
+        long start = report != null ? System.nanoTime() : 0;
+        kernel.multiplyTile(A, B, C, rowFrom, rowTo, colFrom, colTo, blockSize);
+        if (report != null) {
+            report.leaf(System.nanoTime() - start);
+        }
+        progress.advance((long) (rowTo - rowFrom) * (colTo - colFrom));
+        tryComplete();
+    }
+
+    private CompleterMultiplyTask child(int fromRow, int toRow, int fromCol, int toCol) {
+        return new CompleterMultiplyTask(this, A, B, C, fromRow, toRow, fromCol, toCol, progress, kernel,
+                fanOut, threshold, blockSize, leafFlops, report);
+    }
+}
@@ -0,0 +1,76 @@
+package Version3;
+
+import Configuration.FlatMatrix;
+import Configuration.VectorKernels;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin row-splitting task over contiguous FlatMatrix storage. Splits
+ * the same way as MatrixMultiplyTask but the leaf kernels index a single
+ * double[] per operand
+ */
+public class FlatMatrixMultiplyTask extends RecursiveAction {
+
+    private final FlatMatrix A, B, C;
+    private final int startRow, endRow;
+    private final int threshold;
+    private final int blockSize;
+    private final boolean isTransposed;
+    private final boolean simd;
+
+    /**
+     * Constructor for flat matrix multiplication task
+     *
+     * @param A First matrix
+     * @param B Second matrix (or transposed second matrix)
+     * @param C Result matrix
+     * @param startRow Starting row index
+     * @param endRow Ending row index (exclusive)
+     * @param isTransposed Whether B is already transposed
+     */
+    public FlatMatrixMultiplyTask(FlatMatrix A, FlatMatrix B, FlatMatrix C,
+            int startRow, int endRow, boolean isTransposed) {
+        this(A, B, C, startRow, endRow, isTransposed, false);
+    }
+
+    /**
+     * Constructor that can select the Vector API kernels for the leaves
+     *
+     * @param simd Whether leaves use VectorKernels instead of the scalar kernels
+     */
+    public FlatMatrixMultiplyTask(FlatMatrix A, FlatMatrix B, FlatMatrix C,
+            int startRow, int endRow, boolean isTransposed, boolean simd) {
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.startRow = startRow;
+        this.endRow = endRow;
+        this.isTransposed = isTransposed;
+        this.simd = simd;
+        this.threshold = MatrixMultiplyTask.determineThreshold(MatrixMultiplier.tuningSize(A.row, C.col));
+        this.blockSize = MatrixMultiplyTask.determineBlockSize(MatrixMultiplier.tuningSize(A.row, C.col));
+    }
+
+    @Override
+    protected void compute() {
+        int rows = endRow - startRow;
+
+        if (rows <= threshold) {
+            if (simd && isTransposed) {
+                VectorKernels.multiplyRowsDot(A, B, C, startRow, endRow, blockSize);
+            } else if (simd) {
+                VectorKernels.multiplyRowsBroadcast(A, B, C, startRow, endRow, blockSize);
+            } else if (isTransposed) {
+                FlatMatrix.multiplyRowsTransposed(A, B, C, startRow, endRow, blockSize);
+            } else {
+                FlatMatrix.multiplyRowsBlocked(A, B, C, startRow, endRow, blockSize);
+            }
+        } else {
+            int mid = (startRow + endRow) / 2;
+            FlatMatrixMultiplyTask task1 = new FlatMatrixMultiplyTask(A, B, C, startRow, mid, isTransposed, simd);
+            FlatMatrixMultiplyTask task2 = new FlatMatrixMultiplyTask(A, B, C, mid, endRow, isTransposed, simd);
+            invokeAll(task1, task2);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package Version3;
+
+import Configuration.FloatMatrix;
+import Configuration.MatrixWorkspace;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin row-splitting task over single-precision FloatMatrix operands,
+ * optionally accumulating each output element in double
+ */
+public class FloatMatrixMultiplyTask extends RecursiveAction {
+
+    private final FloatMatrix A, B, C;
+    private final int startRow, endRow;
+    private final int threshold;
+    private final int blockSize;
+    private final boolean accumulateDouble;
+    private final MatrixWorkspace workspace;
+
+    /**
+     * Constructor for float matrix multiplication task
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix
+     * @param startRow Starting row index
+     * @param endRow Ending row index (exclusive)
+     * @param accumulateDouble Whether partial sums are kept in double
+     */
+    public FloatMatrixMultiplyTask(FloatMatrix A, FloatMatrix B, FloatMatrix C,
+            int startRow, int endRow, boolean accumulateDouble) {
+        this(A, B, C, startRow, endRow, accumulateDouble, null);
+    }
+
+    /**
+     * Constructor whose leaves lease their double accumulation panel from a
+     * workspace instead of allocating it
+     *
+     * @param workspace Source of scratch panels, or null to allocate per leaf
+     */
+    public FloatMatrixMultiplyTask(FloatMatrix A, FloatMatrix B, FloatMatrix C,
+            int startRow, int endRow, boolean accumulateDouble, MatrixWorkspace workspace) {
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.startRow = startRow;
+        this.endRow = endRow;
+        this.accumulateDouble = accumulateDouble;
+        this.workspace = workspace;
+        this.threshold = MatrixMultiplyTask.determineThreshold(MatrixMultiplier.tuningSize(A.row, C.col));
+        this.blockSize = MatrixMultiplyTask.determineBlockSize(MatrixMultiplier.tuningSize(A.row, C.col));
+    }
+
+    @Override
+    protected void compute() {
+        int rows = endRow - startRow;
+
+        if (rows <= threshold) {
+            if (accumulateDouble && workspace != null) {
+                double[] acc = workspace.leaseScratch(blockSize * B.col);
+                FloatMatrix.multiplyRowsBlocked(A, B, C, startRow, endRow, blockSize, acc);
+                workspace.release(acc);
+            } else {
+                FloatMatrix.multiplyRowsBlocked(A, B, C, startRow, endRow, blockSize, accumulateDouble);
+            }
+        } else {
+            int mid = (startRow + endRow) / 2;
+            FloatMatrixMultiplyTask task1 = new FloatMatrixMultiplyTask(A, B, C, startRow, mid, accumulateDouble, workspace);
+            FloatMatrixMultiplyTask task2 = new FloatMatrixMultiplyTask(A, B, C, mid, endRow, accumulateDouble, workspace);
+            invokeAll(task1, task2);
+        }
+    }
+}
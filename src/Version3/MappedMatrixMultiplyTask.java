@@ -0,0 +1,136 @@
+package Version3;
+
+import Configuration.MappedMatrix;
+import Configuration.MatrixWorkspace;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Out-of-core ForkJoin multiply over file-backed matrices. The unit of work
+ * is one tileSize x tileSize tile of C: the leaf streams the matching row
+ * band of A and column band of B through heap tile buffers, accumulates the
+ * C tile on the heap and writes it back once.
+ *
+ * Heap use is three tiles per active worker, whatever the matrix size; the
+ * rest of A, B and C stays in the page cache or on disk. With a workspace
+ * the tile buffers are leased and returned, so repeated runs reuse them.
+ */
+public class MappedMatrixMultiplyTask extends RecursiveAction {
+
+    private final MappedMatrix A, B, C;
+    private final int tileSize;
+    private final int firstTile, lastTile; // C tiles in row-major tile order, [firstTile, lastTile)
+    private final MatrixWorkspace workspace;
+
+    /**
+     * Constructor for mapped matrix multiplication task
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix, overwritten
+     * @param tileSize Edge length of the square tiles
+     * @param firstTile First C tile index handled by this task
+     * @param lastTile Last C tile index handled by this task (exclusive)
+     */
+    public MappedMatrixMultiplyTask(MappedMatrix A, MappedMatrix B, MappedMatrix C,
+            int tileSize, int firstTile, int lastTile) {
+        this(A, B, C, tileSize, firstTile, lastTile, null);
+    }
+
+    /**
+     * Constructor whose leaves lease their tile buffers from a workspace
+     *
+     * @param workspace Source of tile buffers, or null to allocate per tile
+     */
+    public MappedMatrixMultiplyTask(MappedMatrix A, MappedMatrix B, MappedMatrix C,
+            int tileSize, int firstTile, int lastTile, MatrixWorkspace workspace) {
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.tileSize = tileSize;
+        this.firstTile = firstTile;
+        this.lastTile = lastTile;
+        this.workspace = workspace;
+    }
+
+    /**
+     * Number of C tiles for the given result shape
+     */
+    public static int tileCount(MappedMatrix C, int tileSize) {
+        return ceilDiv(C.row, tileSize) * ceilDiv(C.col, tileSize);
+    }
+
+    @Override
+    protected void compute() {
+        if (lastTile - firstTile <= 1) {
+            if (lastTile > firstTile) {
+                multiplyTile(firstTile);
+            }
+        } else {
+            int mid = (firstTile + lastTile) >>> 1;
+            invokeAll(new MappedMatrixMultiplyTask(A, B, C, tileSize, firstTile, mid, workspace),
+                    new MappedMatrixMultiplyTask(A, B, C, tileSize, mid, lastTile, workspace));
+        }
+    }
+
+    private void multiplyTile(int tile) {
+        int tilesPerRow = ceilDiv(C.col, tileSize);
+        int i0 = (tile / tilesPerRow) * tileSize;
+        int j0 = (tile % tilesPerRow) * tileSize;
+        int iLimit = Math.min(i0 + tileSize, C.row);
+        int jLimit = Math.min(j0 + tileSize, C.col);
+        int rows = iLimit - i0;
+        int cols = jLimit - j0;
+        int inner = A.col;
+
+        double[] aTile = null, bTile = null, cTile = null;
+        try {
+            aTile = lease();
+            bTile = lease();
+            cTile = lease();
+            Arrays.fill(cTile, 0.0);
+
+            for (int k0 = 0; k0 < inner; k0 += tileSize) {
+                int kLimit = Math.min(k0 + tileSize, inner);
+                int depth = kLimit - k0;
+
+                A.readTile(i0, iLimit, k0, kLimit, aTile, tileSize);
+                B.readTile(k0, kLimit, j0, jLimit, bTile, tileSize);
+
+                for (int i = 0; i < rows; i++) {
+                    int aBase = i * tileSize;
+                    int cBase = i * tileSize;
+                    for (int k = 0; k < depth; k++) {
+                        double aik = aTile[aBase + k];
+                        int bBase = k * tileSize;
+                        for (int j = 0; j < cols; j++) {
+                            cTile[cBase + j] += aik * bTile[bBase + j];
+                        }
+                    }
+                }
+            }
+
+            C.writeTile(i0, iLimit, j0, jLimit, cTile, tileSize);
+        } finally {
+            // Return the tiles even when a read or write fails so the workspace does not leak them
+            release(aTile);
+            release(bTile);
+            release(cTile);
+        }
+    }
+
+    private double[] lease() {
+        return workspace != null ? workspace.leaseScratch(tileSize * tileSize) : new double[tileSize * tileSize];
+    }
+
+    private void release(double[] tile) {
+        if (workspace != null && tile != null) {
+            workspace.release(tile);
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+}
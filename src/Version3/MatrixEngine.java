@@ -0,0 +1,236 @@
+package Version3;
+
+import Configuration.Matrix;
+import Configuration.MatrixKernel;
+import Configuration.ProgressTracker;
+import Version2.MultiplyWithThreadPool;
+import Version2.WorkerTeam;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Long-lived multiplication engine that owns its executors.
+ *
+ * MatrixMultiplier.multiplyMatrices(A, B, numThreads) builds a ForkJoinPool
+ * per call and MultiplyWithThreadPool.assignPer*() a fixed thread pool per
+ * call, so for small products most of the time goes into starting threads.
+ * An engine instead keeps one ForkJoinPool, one fixed pool and one
+ * WorkerTeam per parallelism level, created on first use and reused by
+ * every later call, so after the first call at a level the threads are
+ * warm and a runner measures steady-state latency rather than pool
+ * construction.
+ *
+ * An engine is safe to share between threads. close() shuts every pool
+ * down and waits for running multiplications to finish; afterwards every
+ * method throws IllegalStateException. The fixed pools use daemon threads,
+ * so an engine that is never closed does not keep the JVM alive.
+ */
+public class MatrixEngine implements AutoCloseable {
+
+    private final int defaultParallelism;
+    // Guarded by this; only lookups and close() lock, never a multiplication
+    private final Map<Integer, ForkJoinPool> forkJoinPools = new HashMap<>();
+    private final Map<Integer, ExecutorService> threadPools = new HashMap<>();
+    private final Map<Integer, WorkerTeam> teams = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * Engine whose default parallelism is the number of available processors
+     */
+    public MatrixEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param defaultParallelism Parallelism of the methods that do not take one
+     */
+    public MatrixEngine(int defaultParallelism) {
+        if (defaultParallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + defaultParallelism);
+        }
+        this.defaultParallelism = defaultParallelism;
+    }
+
+    public int defaultParallelism() {
+        return defaultParallelism;
+    }
+
+    /**
+     * Multiplies two matrices on the engine's ForkJoinPool of the default
+     * parallelism, with the kernel chosen by MatrixMultiplier.kernelFor()
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @return Result matrix C = A * B
+     */
+    public double[][] multiply(double[][] A, double[][] B) {
+        return multiply(A, B, defaultParallelism);
+    }
+
+    /**
+     * Multiplies two matrices on the engine's ForkJoinPool of the given
+     * parallelism, with the kernel chosen by MatrixMultiplier.kernelFor()
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param parallelism Workers of the pool to run on
+     * @return Result matrix C = A * B
+     */
+    public double[][] multiply(double[][] A, double[][] B, int parallelism) {
+        return multiply(A, B, parallelism, MatrixMultiplier.kernelFor(A.length, B[0].length));
+    }
+
+    /**
+     * Multiplies two matrices on the engine's ForkJoinPool of the given
+     * parallelism with a chosen leaf kernel. As in MatrixMultiplier the root
+     * task is split-K or 2D tiles depending on the shape
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param parallelism Workers of the pool to run on
+     * @param kernel Kernel run by every leaf
+     * @return Result matrix C = A * B
+     */
+    public double[][] multiply(double[][] A, double[][] B, int parallelism, MatrixKernel kernel) {
+        double[][] C = new double[A.length][B[0].length];
+        multiplyInto(A, B, C, parallelism, kernel);
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices into an existing result on the engine's
+     * ForkJoinPool, so repeated calls allocate nothing but the ForkJoin
+     * tasks (and a transposed B for kernels that read one)
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.length x B[0].length, overwritten
+     * @param parallelism Workers of the pool to run on
+     * @param kernel Kernel run by every leaf
+     */
+    public void multiplyInto(double[][] A, double[][] B, double[][] C, int parallelism, MatrixKernel kernel) {
+        if (A[0].length != B.length || C.length != A.length || C[0].length != B[0].length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        MatrixMultiplier.requireAvailable(kernel);
+
+        for (double[] row : C) {
+            Arrays.fill(row, 0.0);
+        }
+        forkJoinPool(parallelism).invoke(MatrixMultiplier.newTask(A, MatrixMultiplier.prepare(B, kernel), C,
+                ProgressTracker.NONE, kernel, parallelism));
+    }
+
+    /**
+     * Multiplies two matrices chunk by chunk on the engine's fixed thread
+     * pool of the default parallelism (see
+     * MultiplyWithThreadPool.multiplyInto)
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param kernel Kernel run on every chunk of rows
+     * @return Result matrix C = A * B
+     */
+    public Matrix multiplyWithThreadPool(Matrix A, Matrix B, MatrixKernel kernel) throws InterruptedException {
+        return multiplyWithThreadPool(A, B, defaultParallelism, kernel);
+    }
+
+    /**
+     * Multiplies two matrices chunk by chunk on the engine's fixed thread
+     * pool of the given parallelism
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param parallelism Threads of the pool to run on
+     * @param kernel Kernel run on every chunk of rows
+     * @return Result matrix C = A * B
+     */
+    public Matrix multiplyWithThreadPool(Matrix A, Matrix B, int parallelism, MatrixKernel kernel)
+            throws InterruptedException {
+        Matrix C = new Matrix(A.row, B.col);
+        MultiplyWithThreadPool.multiplyInto(A, B, C, kernel, threadPool(parallelism));
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices on the engine's WorkerTeam of the given size,
+     * which avoids task allocation and, between back-to-back calls, thread
+     * wake-ups; meant for small and medium products
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param parallelism Members of the team to run on
+     * @param kernel Kernel run on every band of rows
+     * @return Result matrix C = A * B
+     */
+    public double[][] multiplyOnTeam(double[][] A, double[][] B, int parallelism, MatrixKernel kernel) {
+        return MatrixMultiplier.multiplyMatrices(A, B, team(parallelism), kernel);
+    }
+
+    /**
+     * The engine's ForkJoinPool with the given parallelism, created on
+     * first use
+     */
+    public synchronized ForkJoinPool forkJoinPool(int parallelism) {
+        requireOpen(parallelism);
+        return forkJoinPools.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    /**
+     * The engine's fixed thread pool with the given number of threads,
+     * created on first use
+     */
+    public synchronized ExecutorService threadPool(int parallelism) {
+        requireOpen(parallelism);
+        return threadPools.computeIfAbsent(parallelism, threads -> Executors.newFixedThreadPool(
+                threads, Thread.ofPlatform().name("matrix-engine-" + threads + "-", 0).daemon().factory()));
+    }
+
+    /**
+     * The engine's WorkerTeam with the given number of members, created on
+     * first use
+     */
+    public synchronized WorkerTeam team(int parallelism) {
+        requireOpen(parallelism);
+        return teams.computeIfAbsent(parallelism, WorkerTeam::new);
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Shut every pool down and wait for the multiplications running on them
+     * to finish. Calling close() again has no effect
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (ForkJoinPool pool : forkJoinPools.values()) {
+            pool.close();
+        }
+        for (ExecutorService pool : threadPools.values()) {
+            pool.close();
+        }
+        for (WorkerTeam team : teams.values()) {
+            team.close();
+        }
+        forkJoinPools.clear();
+        threadPools.clear();
+        teams.clear();
+    }
+
+    private void requireOpen(int parallelism) {
+        if (closed) {
+            throw new IllegalStateException("MatrixEngine is closed");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+        }
+    }
+}
@@ -1,11 +1,25 @@
 package Version3;
 
+import Configuration.FlatMatrix;
+import Configuration.FloatMatrix;
+import Configuration.MappedMatrix;
+import Configuration.Matrix;
+import Configuration.MatrixWorkspace;
+import Configuration.OffHeapMatrix;
+import Version2.MultiplyWithThreadPool;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryPoolMXBean;
 import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 
 /**
@@ -225,6 +239,230 @@ public class MatrixMemoryProfiler {
                 + String.format("%.2f MB", getMaxMemoryUsage()));
     }
 
+    /**
+     * Run an off-heap matrix multiplication with memory profiling; heap usage
+     * should stay flat while the operands live in native memory
+     */
+    public static void profileOffHeapMultiplication(int size, int threads) {
+        System.out.println("OFF-HEAP MEMORY PROFILING: Matrix Size " + size + "x" + size + ", " + threads + " threads");
+        System.out.println("====================================================================");
+
+        resetMemoryStats();
+        System.out.println("Initial memory usage: " + String.format("%.2f MB", getCurrentMemoryUsage()));
+
+        try (Arena arena = Arena.ofShared()) {
+            System.out.println("Allocating off-heap matrices...");
+            OffHeapMatrix A = new OffHeapMatrix(size, size, arena);
+            OffHeapMatrix B = new OffHeapMatrix(size, size, arena);
+            A.assignRandom();
+            B.assignRandom();
+            double nativeMB = 3.0 * A.byteSize() / (1024.0 * 1024.0);
+            System.out.println("Memory after matrix generation: " + String.format("%.2f MB", getCurrentMemoryUsage()));
+            System.out.println("Memory change: " + String.format("%.2f MB", getMemoryDelta()));
+
+            System.out.println("Executing matrix multiplication...");
+            long startTime = System.nanoTime();
+            MatrixMultiplier.multiplyMatrices(A, B, arena, threads);
+            long endTime = System.nanoTime();
+            System.out.println("Memory after multiplication: " + String.format("%.2f MB", getCurrentMemoryUsage()));
+            System.out.println("Memory change: " + String.format("%.2f MB", getMemoryDelta()));
+            System.out.println("Off-heap memory held by A, B, C: " + String.format("%.2f MB", nativeMB));
+            System.out.println("Execution time: " + (endTime - startTime) / 1_000_000.0 + " ms");
+            System.out.println("GC stats: " + getGCStats());
+        }
+
+        System.out.println("\nMax heap usage during entire operation: "
+                + String.format("%.2f MB", getMaxMemoryUsage()));
+    }
+
+    /**
+     * Run an out-of-core multiplication over memory-mapped files with memory
+     * profiling; heap usage is bounded by the tile buffers of the workers
+     */
+    public static void profileMappedMultiplication(int size, int threads, int tileSize) {
+        System.out.println("MAPPED FILE PROFILING: Matrix Size " + size + "x" + size + ", " + threads
+                + " threads, tile " + tileSize);
+        System.out.println("====================================================================");
+
+        resetMemoryStats();
+        System.out.println("Initial memory usage: " + String.format("%.2f MB", getCurrentMemoryUsage()));
+
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory("mapped-matrix");
+            try (MappedMatrix A = MappedMatrix.create(dir.resolve("A.bin"), size, size);
+                    MappedMatrix B = MappedMatrix.create(dir.resolve("B.bin"), size, size)) {
+                A.assignRandom();
+                B.assignRandom();
+                System.out.println("Memory after matrix generation: " + String.format("%.2f MB", getCurrentMemoryUsage()));
+                System.out.println("Memory change: " + String.format("%.2f MB", getMemoryDelta()));
+
+                System.out.println("Executing matrix multiplication...");
+                long startTime = System.nanoTime();
+                try (MappedMatrix C = MatrixMultiplier.multiplyMatrices(A, B, dir.resolve("C.bin"), tileSize, threads)) {
+                    long endTime = System.nanoTime();
+                    System.out.println("Memory after multiplication: " + String.format("%.2f MB", getCurrentMemoryUsage()));
+                    System.out.println("Memory change: " + String.format("%.2f MB", getMemoryDelta()));
+                    System.out.println("Heap bound from tile buffers: " + String.format("%.2f MB",
+                            3.0 * threads * tileSize * tileSize * Double.BYTES / (1024.0 * 1024.0)));
+                    System.out.println("Execution time: " + (endTime - startTime) / 1_000_000.0 + " ms");
+                    System.out.println("Checksum C[0][0]: " + C.get(0, 0));
+                    System.out.println("GC stats: " + getGCStats());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error using mapped matrix files: " + e.getMessage());
+        } finally {
+            if (dir != null) {
+                for (String name : new String[]{"A.bin", "B.bin", "C.bin"}) {
+                    dir.resolve(name).toFile().delete();
+                }
+                dir.toFile().delete();
+            }
+        }
+
+        System.out.println("\nMax heap usage during entire operation: "
+                + String.format("%.2f MB", getMaxMemoryUsage()));
+    }
+
+    /**
+     * Something that is run repeatedly while its allocations are counted
+     */
+    private interface Workload {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Heap bytes allocated per call of the workload, summed over every live
+     * Java thread so pool workers are included. Runs warmup calls first so
+     * the workspace holds every shape and the JIT has settled.
+     */
+    private static long allocatedBytesPerCall(Workload workload, int warmup, int iterations)
+            throws InterruptedException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < warmup; i++) {
+            workload.run();
+        }
+        long before = threads.getTotalThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            workload.run();
+        }
+        return (threads.getTotalThreadAllocatedBytes() - before) / iterations;
+    }
+
+    /**
+     * Heap bytes allocated per call by the calling thread alone; used for the
+     * sequential engine, whose steady state must allocate nothing at all
+     */
+    private static long currentThreadBytesPerCall(Workload workload, int warmup, int iterations)
+            throws InterruptedException {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < warmup; i++) {
+            workload.run();
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            workload.run();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / iterations;
+    }
+
+    /**
+     * Count heap allocation per multiplication for the allocating APIs and
+     * for multiplyInto with a warm MatrixWorkspace. The workspace paths must
+     * allocate far less than one result matrix per call (only the per-call
+     * task objects remain), and the sequential path must allocate nothing.
+     *
+     * @return true when every workspace path met its bound
+     */
+    public static boolean profileWorkspaceAllocation(int size, int iterations) throws InterruptedException {
+        System.out.println("WORKSPACE ALLOCATION PROFILING: Matrix Size " + size + "x" + size
+                + ", " + iterations + " calls per engine");
+        System.out.println("====================================================================");
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocation counting is not supported by this JVM");
+            return false;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        MatrixWorkspace workspace = new MatrixWorkspace();
+        int warmup = 5;
+        long resultBytes = (long) size * size * Double.BYTES;
+        // Per-call task objects and latches are a few KB; one result is resultBytes
+        long bound = Math.min(64 * 1024, resultBytes / 8);
+        boolean ok = true;
+
+        double[][] a = MatrixMultiplier.generateRandomMatrix(size, size);
+        double[][] b = MatrixMultiplier.generateRandomMatrix(size, size);
+        FlatMatrix flatA = FlatMatrix.from(a), flatB = FlatMatrix.from(b);
+        FloatMatrix floatA = FloatMatrix.from(a), floatB = FloatMatrix.from(b);
+        Matrix matA = flatA.toMatrix(), matB = flatB.toMatrix();
+
+        System.out.printf("%-30s %18s %18s%n", "Engine", "allocating B/call", "workspace B/call");
+
+        long allocating = allocatedBytesPerCall(() -> MatrixMultiplier.multiplyMatrices(a, b), warmup, iterations);
+        long reusing = allocatedBytesPerCall(() -> {
+            double[][] c = workspace.leaseArray(size, size);
+            MatrixMultiplier.multiplyInto(a, b, c, workspace);
+            workspace.release(c);
+        }, warmup, iterations);
+        ok &= printAllocationRow("ForkJoin double[][]", allocating, reusing, bound);
+
+        allocating = allocatedBytesPerCall(() -> MatrixMultiplier.multiplyMatrices(flatA, flatB), warmup, iterations);
+        reusing = allocatedBytesPerCall(() -> {
+            FlatMatrix c = workspace.leaseFlat(size, size);
+            MatrixMultiplier.multiplyInto(flatA, flatB, c);
+            workspace.release(c);
+        }, warmup, iterations);
+        ok &= printAllocationRow("ForkJoin FlatMatrix", allocating, reusing, bound);
+
+        allocating = allocatedBytesPerCall(() -> MatrixMultiplier.multiplyMatrices(floatA, floatB,
+                Runtime.getRuntime().availableProcessors(), true), warmup, iterations);
+        reusing = allocatedBytesPerCall(() -> {
+            FloatMatrix c = workspace.leaseFloat(size, size);
+            MatrixMultiplier.multiplyInto(floatA, floatB, c, true, workspace);
+            workspace.release(c);
+        }, warmup, iterations);
+        ok &= printAllocationRow("ForkJoin FloatMatrix (f64 acc)", allocating, reusing, bound);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            allocating = allocatedBytesPerCall(() -> MultiplyWithThreadPool.assignPerChunk(flatA, flatB), warmup, iterations);
+            reusing = allocatedBytesPerCall(() -> {
+                FlatMatrix c = workspace.leaseFlat(size, size);
+                MultiplyWithThreadPool.multiplyInto(flatA, flatB, c, executor);
+                workspace.release(c);
+            }, warmup, iterations);
+            ok &= printAllocationRow("Thread pool FlatMatrix", allocating, reusing, bound);
+        } finally {
+            executor.shutdown();
+        }
+
+        allocating = currentThreadBytesPerCall(() -> matA.multiplication(matB), warmup, iterations);
+        reusing = currentThreadBytesPerCall(() -> {
+            Matrix c = workspace.leaseMatrix(size, size);
+            Matrix.multiplyInto(matA, matB, c);
+            workspace.release(c);
+        }, warmup, iterations);
+        ok &= printAllocationRow("Sequential Matrix", allocating, reusing, 0);
+
+        System.out.println("Workspace leases: " + workspace.leases() + ", fresh buffers: " + workspace.misses());
+        System.out.println(ok ? "PASS: steady state stays within the allocation bound"
+                : "FAIL: a workspace path allocated more than its bound");
+        return ok;
+    }
+
+    private static boolean printAllocationRow(String engine, long allocating, long reusing, long bound) {
+        boolean ok = reusing <= bound;
+        System.out.printf("%-30s %18d %18d  %s (bound %d)%n", engine, allocating, reusing, ok ? "ok" : "OVER", bound);
+        return ok;
+    }
+
     /**
      * Run a comparison of different matrix sizes with memory profiling
      */
@@ -273,7 +511,7 @@ public class MatrixMemoryProfiler {
         }
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws InterruptedException {
         // Example usage
         System.out.println("Memory Profiling Utility for Matrix Multiplication");
 
@@ -282,5 +520,14 @@ public class MatrixMemoryProfiler {
 
         // Run comparison tests
         runMemoryComparisonTests();
+
+        // Same size with operands held off-heap
+        profileOffHeapMultiplication(1000, Runtime.getRuntime().availableProcessors());
+
+        // Same size streamed from memory-mapped files
+        profileMappedMultiplication(1000, Runtime.getRuntime().availableProcessors(), 256);
+
+        // Steady-state allocation of the multiplyInto/workspace paths
+        profileWorkspaceAllocation(500, 20);
     }
 }
@@ -1,8 +1,28 @@
 package Version3;
 
+import Configuration.CsrMatrix;
+import Configuration.FlatMatrix;
+import Configuration.FloatMatrix;
+import Configuration.KernelRegistry;
+import Configuration.MappedMatrix;
+import Configuration.MatrixKernel;
+import Configuration.MatrixWorkspace;
+import Configuration.OffHeapMatrix;
+import Configuration.OperandCache;
+import Configuration.PackedGemm;
+import Configuration.ProgressTracker;
+import Configuration.RandomFill;
+import Configuration.TuningProfile;
+import Version2.LoopScheduler;
+import Version2.WorkerTeam;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
 import java.lang.management.ManagementFactory;
-import java.util.Random;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import com.sun.management.OperatingSystemMXBean;
 
 /**
@@ -14,6 +34,49 @@ public class MatrixMultiplier {
     private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool(
             Runtime.getRuntime().availableProcessors());
 
+    // Tuned parameters for this machine, loaded once at startup (EMPTY,
+    // i.e. the built-in defaults, until Autotuner has been run here)
+    private static volatile TuningProfile tuningProfile = TuningProfile.loadForThisMachine();
+
+    /**
+     * Profile consulted for leaf threshold, block size and kernel
+     */
+    public static TuningProfile tuningProfile() {
+        return tuningProfile;
+    }
+
+    /**
+     * Replace the active profile, e.g. with one the autotuner just built
+     */
+    public static void useTuningProfile(TuningProfile profile) {
+        tuningProfile = profile;
+    }
+
+    /**
+     * Size a rows x cols result is looked up by in the tuning profile. The
+     * kernel, threshold, block size and thread count of one product must
+     * all come from the same size class, so every lookup goes through here
+     */
+    static int tuningSize(int rows, int cols) {
+        return Math.max(rows, cols);
+    }
+
+    /**
+     * Leaf kernel for a rows x cols result: the one named by -Dmatrix.kernel
+     * if set, else the tuned kernel for its size class if it can run in this
+     * JVM, else the registry default
+     */
+    static MatrixKernel kernelFor(int rows, int cols) {
+        if (System.getProperty(KernelRegistry.KERNEL_PROPERTY) == null) {
+            TuningProfile.SizeClass tuned = tuningProfile.find(tuningSize(rows, cols));
+            MatrixKernel kernel = tuned == null ? null : KernelRegistry.find(tuned.kernel);
+            if (kernel != null && kernel.isAvailable()) {
+                return kernel;
+            }
+        }
+        return KernelRegistry.selected();
+    }
+
     /**
      * Generates a random matrix with specified dimensions
      *
@@ -22,18 +85,34 @@ public class MatrixMultiplier {
      * @return A randomly filled matrix
      */
     public static double[][] generateRandomMatrix(int rows, int cols) {
+        return generateRandomMatrix(rows, cols, RandomFill.nextSeed());
+    }
+
+    /**
+     * Generates a random matrix in parallel from a seed; the contents depend
+     * only on the seed and the shape, not on the number of threads
+     *
+     * @param rows Number of rows
+     * @param cols Number of columns
+     * @param seed Seed of the per-tile generators
+     * @return A randomly filled matrix
+     */
+    public static double[][] generateRandomMatrix(int rows, int cols, long seed) {
         double[][] matrix = new double[rows][cols];
-        Random rand = new Random();
-        for (int i = 0; i < rows; i++) {
+        RandomFill.fill(rows, seed, (i, random) -> {
+            double[] row = matrix[i];
             for (int j = 0; j < cols; j++) {
-                matrix[i][j] = rand.nextDouble() * 100;
+                row[j] = random.nextDouble() * 100;
             }
-        }
+        });
         return matrix;
     }
 
     /**
      * Multiplies two matrices using ForkJoin parallelism with default pool
+     * and the kernel chosen by kernelFor(). The default pool is shared and
+     * keeps its size, so a tuned thread count is not applied here; use
+     * multiplyTuned() for that
      *
      * @param A First matrix
      * @param B Second matrix
@@ -44,15 +123,15 @@ public class MatrixMultiplier {
         if (A[0].length != B.length) {
             throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
         }
+        MatrixKernel kernel = kernelFor(A.length, B[0].length);
+        requireAvailable(kernel);
 
         // Create result matrix
         double[][] C = new double[A.length][B[0].length];
 
-        // Use transpose optimization for better cache locality
-        double[][] transposedB = transpose(B);
-
         // Use the default pool
-        DEFAULT_POOL.invoke(new MatrixMultiplyTask(A, transposedB, C, 0, A.length, true));
+        DEFAULT_POOL.invoke(newTask(A, prepare(B, kernel), C, ProgressTracker.NONE, kernel,
+                DEFAULT_POOL.getParallelism()));
 
         return C;
     }
@@ -67,22 +146,770 @@ public class MatrixMultiplier {
      * @return Result matrix C = A * B
      */
     public static double[][] multiplyMatrices(double[][] A, double[][] B, int numThreads) {
+        return multiplyMatrices(A, B, numThreads, ProgressTracker.NONE);
+    }
+
+    /**
+     * Multiplies two matrices using ForkJoin parallelism, reporting finished
+     * elements of C to a progress tracker. Leaves run the kernel chosen by
+     * kernelFor()
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param progress Tracker fed by every leaf task
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyMatrices(double[][] A, double[][] B, int numThreads,
+            ProgressTracker progress) {
         // Validate matrix dimensions
         if (A[0].length != B.length) {
             throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
         }
 
+        MatrixKernel kernel = kernelFor(A.length, B[0].length);
+        requireAvailable(kernel);
+
         // Create result matrix
         double[][] C = new double[A.length][B[0].length];
 
-        // Transpose B for better cache performance
-        double[][] transposedB = transpose(B);
+        // Lay B out the way the kernel reads it (transposed for the default)
+        double[][] preparedB = prepare(B, kernel);
 
         // Use custom ForkJoinPool size
         ForkJoinPool pool = new ForkJoinPool(numThreads);
-        pool.invoke(new MatrixMultiplyTask(A, transposedB, C, 0, A.length, true));
+        progress.begin((long) A.length * B[0].length);
+        pool.invoke(newTask(A, preparedB, C, progress, kernel, numThreads));
+        progress.finish();
+        pool.shutdown();
+
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices using ForkJoin parallelism with a chosen leaf
+     * kernel; B is transposed first only if the kernel reads it transposed
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param kernel Kernel run by every leaf, e.g. from KernelRegistry
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyMatrices(double[][] A, double[][] B, int numThreads,
+            MatrixKernel kernel) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(newTask(A, prepare(B, kernel), C, ProgressTracker.NONE, kernel, numThreads));
+        pool.shutdown();
+
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices on a persistent worker team instead of a
+     * ForkJoinPool. Bands of rows are handed out with a GUIDED schedule, so
+     * no task objects are created and members that are still spinning from
+     * the previous call start without an unpark
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param team Team to run on, e.g. from MatrixEngine.team()
+     * @param kernel Kernel run on every band of rows
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyMatrices(double[][] A, double[][] B, WorkerTeam team, MatrixKernel kernel) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+        double[][] preparedB = prepare(B, kernel);
+        int size = tuningSize(A.length, B[0].length);
+        int blockSize = MatrixMultiplyTask.determineBlockSize(size);
+        // Smallest band: the leaf threshold, or less when that would leave members idle
+        int chunk = Math.max(1, Math.min(MatrixMultiplyTask.determineThreshold(size),
+                A.length / (MatrixMultiplyTask.LEAVES_PER_WORKER * team.size())));
+
+        team.parallelFor(0, A.length, LoopScheduler.Schedule.GUIDED, chunk,
+                (from, to) -> kernel.multiplyRows(A, preparedB, C, from, to, blockSize));
+
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices by splitting the inner dimension across the
+     * workers, whatever the shape; the automatic choice is made by the
+     * other multiplyMatrices overloads
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads, and of k slices
+     * @param kernel Kernel run on every slice
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplySplitK(double[][] A, double[][] B, int numThreads, MatrixKernel kernel) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new SplitKMultiplyTask(A, prepare(B, kernel), C, ProgressTracker.NONE, kernel));
+        pool.shutdown();
+
+        return C;
+    }
+
+    /**
+     * Root task for C = A * B on a pool of the given parallelism: split-K
+     * when the result is small next to the inner dimension (see
+     * SplitKMultiplyTask.isPreferred), 2D tiles of C otherwise
+     */
+    static RecursiveAction newTask(double[][] A, double[][] preparedB, double[][] C, ProgressTracker progress,
+            MatrixKernel kernel, int parallelism) {
+        if (SplitKMultiplyTask.isPreferred(A.length, C[0].length, A[0].length, parallelism)) {
+            return new SplitKMultiplyTask(A, preparedB, C, progress, kernel);
+        }
+        return new MatrixMultiplyTask(A, preparedB, C, 0, A.length, progress, kernel);
+    }
+
+    /**
+     * Multiplies two matrices with every engine parameter fixed by the
+     * caller, bypassing the size heuristics and the tuning profile
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param kernel Kernel run by every leaf
+     * @param threshold Rows of a full-width band above which a tile always splits
+     * @param blockSize Block size passed to the kernel
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyMatrices(double[][] A, double[][] B, int numThreads,
+            MatrixKernel kernel, int threshold, int blockSize) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new MatrixMultiplyTask(A, prepare(B, kernel), C, 0, A.length, ProgressTracker.NONE,
+                kernel, threshold, blockSize));
+        pool.shutdown();
+
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices over 2D tiles of C, whatever the shape, and
+     * records the leaves the adaptive splitting produced
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param kernel Kernel run by every leaf
+     * @param report Filled with the leaf count and the spread of leaf durations
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyMatrices(double[][] A, double[][] B, int numThreads,
+            MatrixKernel kernel, MatrixMultiplyTask.Report report) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+        int size = tuningSize(A.length, B[0].length);
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new MatrixMultiplyTask(A, prepare(B, kernel), C, 0, A.length, ProgressTracker.NONE, kernel,
+                MatrixMultiplyTask.determineThreshold(size), MatrixMultiplyTask.determineBlockSize(size), report));
+        pool.shutdown();
+
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices over 2D tiles of C with a CountedCompleter
+     * tree, which forks fanOut - 1 tasks per split and never joins
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param kernel Kernel run by every leaf
+     * @param fanOut Parts a splitting tile is cut into, at least 2
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyWithCompleter(double[][] A, double[][] B, int numThreads,
+            MatrixKernel kernel, int fanOut) {
+        return multiplyWithCompleter(A, B, numThreads, kernel, fanOut, null);
+    }
+
+    /**
+     * Multiplies two matrices with a CountedCompleter tree and records the
+     * tasks and leaves it produced
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param kernel Kernel run by every leaf
+     * @param fanOut Parts a splitting tile is cut into, at least 2
+     * @param report Filled with task and leaf counts and leaf durations, or null
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyWithCompleter(double[][] A, double[][] B, int numThreads,
+            MatrixKernel kernel, int fanOut, MatrixMultiplyTask.Report report) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+        int size = tuningSize(A.length, B[0].length);
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new CompleterMultiplyTask(A, prepare(B, kernel), C, ProgressTracker.NONE, kernel, fanOut,
+                MatrixMultiplyTask.determineThreshold(size), MatrixMultiplyTask.determineBlockSize(size), report));
+        pool.shutdown();
+
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices with the tuned thread count, kernel, threshold
+     * and block size of this machine for the size class of the result, or
+     * the defaults when the profile has no entry for it
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyTuned(double[][] A, double[][] B) {
+        TuningProfile.SizeClass tuned = tuningProfile.find(tuningSize(A.length, B[0].length));
+        int threads = tuned == null ? Runtime.getRuntime().availableProcessors() : tuned.threads;
+        return multiplyMatrices(A, B, threads);
+    }
+
+    /**
+     * B in the layout kernel reads: transposed or as given
+     */
+    static double[][] prepare(double[][] B, MatrixKernel kernel) {
+        return kernel.transposedB() ? transpose(B) : B;
+    }
+
+    /**
+     * Multiplies two flat matrices using ForkJoin parallelism with the Vector
+     * API broadcast kernel (or the scalar one when simd is false)
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param simd Whether leaves use the Vector API kernels
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyMatrices(FlatMatrix A, FlatMatrix B, int numThreads, boolean simd) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        if (simd) {
+            requireAvailable(KernelRegistry.SIMD_BROADCAST);
+        }
+
+        FlatMatrix C = new FlatMatrix(A.row, B.col);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new FlatMatrixMultiplyTask(A, B, C, 0, A.row, false, simd));
+        pool.shutdown();
+        return C;
+    }
+
+    static void requireAvailable(MatrixKernel kernel) {
+        if (!kernel.isAvailable()) {
+            throw new UnsupportedOperationException(kernel.name() + " kernel is not available in this JVM"
+                    + " (the Vector API kernels need --add-modules jdk.incubator.vector)");
+        }
+    }
+
+    /**
+     * Multiplies two matrices into an existing result using the default pool
+     * and the kernel chosen by kernelFor(). When the kernel reads B
+     * transposed, the transposed copy is leased from the workspace and
+     * returned afterwards, so once the workspace is warm repeated calls with
+     * the same shapes allocate only the ForkJoin task objects
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.length x B[0].length, overwritten
+     * @param workspace Pool for the transposed copy of B
+     */
+    public static void multiplyInto(double[][] A, double[][] B, double[][] C, MatrixWorkspace workspace) {
+        if (A[0].length != B.length || C.length != A.length || C[0].length != B[0].length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        MatrixKernel kernel = kernelFor(A.length, B[0].length);
+        requireAvailable(kernel);
+
+        double[][] preparedB = B;
+        if (kernel.transposedB()) {
+            preparedB = workspace.leaseArray(B[0].length, B.length);
+            transposeInto(B, preparedB);
+        }
+        for (double[] row : C) {
+            Arrays.fill(row, 0.0);
+        }
+
+        try {
+            DEFAULT_POOL.invoke(newTask(A, preparedB, C, ProgressTracker.NONE, kernel,
+                    DEFAULT_POOL.getParallelism()));
+        } finally {
+            if (preparedB != B) {
+                workspace.release(preparedB);
+            }
+        }
+    }
+
+    /**
+     * Multiplies two flat matrices into an existing result using the default
+     * pool; the flat kernels need no scratch
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.row x B.col, overwritten
+     */
+    public static void multiplyInto(FlatMatrix A, FlatMatrix B, FlatMatrix C) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        C.clear();
+        DEFAULT_POOL.invoke(new FlatMatrixMultiplyTask(A, B, C, 0, A.row, false));
+        C.markModified();
+    }
+
+    /**
+     * Multiplies two flat matrices into an existing result using the default
+     * pool and the dot-product kernel. The transposed copy of B comes from
+     * the cache, so it is built once per version of B rather than per call
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.row x B.col, overwritten
+     * @param cache Cache of transposed operands
+     */
+    public static void multiplyInto(FlatMatrix A, FlatMatrix B, FlatMatrix C, OperandCache cache) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        FlatMatrix transposedB = cache.transposed(B);
+        C.clear();
+        DEFAULT_POOL.invoke(new FlatMatrixMultiplyTask(A, transposedB, C, 0, A.row, true));
+        C.markModified();
+    }
+
+    /**
+     * Multiplies two flat matrices using the default pool, taking the
+     * transposed copy of B from the cache
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param cache Cache of transposed operands
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyMatrices(FlatMatrix A, FlatMatrix B, OperandCache cache) {
+        FlatMatrix C = new FlatMatrix(A.row, B.col);
+        multiplyInto(A, B, C, cache);
+        return C;
+    }
+
+    /**
+     * Multiplies two matrices using the default pool and the kernel chosen by
+     * kernelFor(), taking the transposed copy of B from the cache when the
+     * kernel reads one. A double[][] cannot report its own writes, so the
+     * caller passes a version for B and must change it after modifying B
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param versionB Modification version of B
+     * @param cache Cache of transposed operands
+     * @return Result matrix C = A * B
+     */
+    public static double[][] multiplyMatrices(double[][] A, double[][] B, long versionB, OperandCache cache) {
+        if (A[0].length != B.length) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        MatrixKernel kernel = kernelFor(A.length, B[0].length);
+        requireAvailable(kernel);
+
+        double[][] C = new double[A.length][B[0].length];
+        double[][] preparedB = kernel.transposedB() ? cache.transposed(B, versionB) : B;
+        DEFAULT_POOL.invoke(newTask(A, preparedB, C, ProgressTracker.NONE, kernel,
+                DEFAULT_POOL.getParallelism()));
+        return C;
+    }
+
+    /**
+     * Multiplies two single-precision matrices into an existing result using
+     * the default pool. With accumulateDouble the per-leaf double panels are
+     * leased from the workspace
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.row x B.col, overwritten
+     * @param accumulateDouble Whether partial sums are kept in double
+     * @param workspace Pool for the accumulation panels
+     */
+    public static void multiplyInto(FloatMatrix A, FloatMatrix B, FloatMatrix C, boolean accumulateDouble,
+            MatrixWorkspace workspace) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        DEFAULT_POOL.invoke(new FloatMatrixMultiplyTask(A, B, C, 0, A.row, accumulateDouble, workspace));
+    }
+
+    /**
+     * Multiplies a sparse matrix by a dense matrix into an existing result
+     * using the default pool
+     *
+     * @param A Sparse first matrix
+     * @param B Dense second matrix
+     * @param C Dense result matrix of shape A.row x B.col, overwritten
+     */
+    public static void multiplyInto(CsrMatrix A, FlatMatrix B, FlatMatrix C) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        C.clear();
+        DEFAULT_POOL.invoke(new SparseMatrixMultiplyTask(A, B, C, 0, A.row,
+                SparseMatrixMultiplyTask.defaultGrain(A, DEFAULT_POOL.getParallelism())));
+        C.markModified();
+    }
+
+    /**
+     * Multiplies two off-heap matrices into an existing off-heap result using
+     * the default pool
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.row x B.col, overwritten
+     */
+    public static void multiplyInto(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        C.clear();
+        DEFAULT_POOL.invoke(new OffHeapMatrixMultiplyTask(A, B, C, 0, A.row));
+    }
+
+    /**
+     * Multiplies two file-backed matrices into an existing file-backed result
+     * using the default pool, leasing the tile buffers from the workspace
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix of shape A.row x B.col, overwritten
+     * @param tileSize Edge length of the square tiles streamed from the mappings
+     * @param workspace Pool for the tile buffers
+     */
+    public static void multiplyInto(MappedMatrix A, MappedMatrix B, MappedMatrix C, int tileSize,
+            MatrixWorkspace workspace) {
+        if (A.col != B.row || C.row != A.row || C.col != B.col) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        DEFAULT_POOL.invoke(new MappedMatrixMultiplyTask(A, B, C, tileSize, 0,
+                MappedMatrixMultiplyTask.tileCount(C, tileSize), workspace));
+    }
+
+    /**
+     * Multiplies two flat matrices using ForkJoin parallelism with default
+     * pool. Flat storage already streams rows of B contiguously in the i-k-j
+     * kernel, so no transposed copy of B is made
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyMatrices(FlatMatrix A, FlatMatrix B) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        FlatMatrix C = new FlatMatrix(A.row, B.col);
+        DEFAULT_POOL.invoke(new FlatMatrixMultiplyTask(A, B, C, 0, A.row, false));
+        return C;
+    }
+
+    /**
+     * Multiplies two flat matrices using ForkJoin parallelism with specified
+     * number of threads
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyMatrices(FlatMatrix A, FlatMatrix B, int numThreads) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        FlatMatrix C = new FlatMatrix(A.row, B.col);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new FlatMatrixMultiplyTask(A, B, C, 0, A.row, false));
+        pool.shutdown();
+        return C;
+    }
+
+    /**
+     * Multiplies two flat matrices with the packed GotoBLAS-style engine.
+     * For every nc x kc block of B the block is packed once, then the row
+     * panels of A are packed and multiplied in parallel
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param blocking L1/L2/L3 blocking (kc, mc, nc)
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param simd Whether to use the Vector API micro-kernel
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyPacked(FlatMatrix A, FlatMatrix B, PackedGemm.Blocking blocking,
+            int numThreads, boolean simd) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        if (simd) {
+            requireAvailable(KernelRegistry.PACKED_SIMD);
+        }
+
+        FlatMatrix C = new FlatMatrix(A.row, B.col);
+        int nr = PackedGemm.tileColumns(simd);
+        double[] packedB = new double[PackedGemm.roundUp(Math.min(blocking.nc, B.col), nr)
+                * Math.min(blocking.kc, A.col)];
+        MatrixWorkspace workspace = new MatrixWorkspace();
+        int panels = PackedMatrixMultiplyTask.panelCount(C, blocking);
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        for (int jc = 0; jc < B.col; jc += blocking.nc) {
+            int nc = Math.min(blocking.nc, B.col - jc);
+            for (int pc = 0; pc < A.col; pc += blocking.kc) {
+                int kc = Math.min(blocking.kc, A.col - pc);
+                PackedGemm.packB(B, pc, jc, kc, nc, nr, packedB);
+                pool.invoke(new PackedMatrixMultiplyTask(A, C, packedB, jc, pc, nc, kc, blocking, simd,
+                        workspace, 0, panels));
+            }
+        }
         pool.shutdown();
 
+        C.markModified();
+        return C;
+    }
+
+    /**
+     * Multiplies two flat matrices with the Strassen-Winograd engine. Operands
+     * are zero-padded to a common square size that halves evenly down to the
+     * cutoff; the padding rows and columns are dropped from the result
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param cutoff Size at or below which the blocked kernel takes over
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param meter Receives the live and peak workspace of the run
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyStrassen(FlatMatrix A, FlatMatrix B, int cutoff, int numThreads,
+            StrassenMultiplyTask.WorkspaceMeter meter) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+        if (cutoff < 1) {
+            throw new IllegalArgumentException("Strassen cutoff must be positive: " + cutoff);
+        }
+
+        int n = Math.max(A.row, Math.max(A.col, B.col));
+        int padded = StrassenMultiplyTask.paddedSize(n, cutoff);
+        int depth = StrassenMultiplyTask.parallelDepth(numThreads, StrassenMultiplyTask.levels(n, cutoff));
+        FlatMatrix paddedA = padTo(A, padded, meter);
+        FlatMatrix paddedB = padTo(B, padded, meter);
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        FlatMatrix C = pool.invoke(new StrassenMultiplyTask(paddedA, paddedB, cutoff,
+                MatrixMultiplyTask.determineBlockSize(n), depth, meter));
+        pool.shutdown();
+
+        if (paddedA != A) {
+            meter.free((long) padded * padded * Double.BYTES);
+        }
+        if (paddedB != B) {
+            meter.free((long) padded * padded * Double.BYTES);
+        }
+        if (padded == A.row && padded == B.col) {
+            meter.free((long) padded * padded * Double.BYTES);
+            return C;
+        }
+
+        FlatMatrix result = new FlatMatrix(A.row, B.col);
+        for (int i = 0; i < A.row; i++) {
+            System.arraycopy(C.data, i * C.stride, result.data, i * result.stride, B.col);
+        }
+        meter.free((long) padded * padded * Double.BYTES);
+        return result;
+    }
+
+    /**
+     * Multiplies two flat matrices with the Strassen-Winograd engine
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param cutoff Size at or below which the blocked kernel takes over
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @return Result matrix C = A * B
+     */
+    public static FlatMatrix multiplyStrassen(FlatMatrix A, FlatMatrix B, int cutoff, int numThreads) {
+        return multiplyStrassen(A, B, cutoff, numThreads, new StrassenMultiplyTask.WorkspaceMeter());
+    }
+
+    private static FlatMatrix padTo(FlatMatrix matrix, int size, StrassenMultiplyTask.WorkspaceMeter meter) {
+        if (matrix.row == size && matrix.col == size && matrix.stride == size) {
+            return matrix;
+        }
+        meter.allocate((long) size * size * Double.BYTES);
+        FlatMatrix padded = new FlatMatrix(size, size);
+        for (int i = 0; i < matrix.row; i++) {
+            System.arraycopy(matrix.data, i * matrix.stride, padded.data, i * size, matrix.col);
+        }
+        return padded;
+    }
+
+    /**
+     * Multiplies two single-precision matrices using ForkJoin parallelism
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @param accumulateDouble Whether partial sums are kept in double
+     * @return Result matrix C = A * B
+     */
+    public static FloatMatrix multiplyMatrices(FloatMatrix A, FloatMatrix B, int numThreads,
+            boolean accumulateDouble) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        FloatMatrix C = new FloatMatrix(A.row, B.col);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new FloatMatrixMultiplyTask(A, B, C, 0, A.row, accumulateDouble));
+        pool.shutdown();
+        return C;
+    }
+
+    /**
+     * Multiplies a sparse CSR matrix by a dense matrix using ForkJoin
+     * parallelism; work is balanced by nonzero count
+     *
+     * @param A Sparse first matrix
+     * @param B Dense second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @return Dense result matrix C = A * B
+     */
+    public static FlatMatrix multiplyMatrices(CsrMatrix A, FlatMatrix B, int numThreads) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        FlatMatrix C = new FlatMatrix(A.row, B.col);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new SparseMatrixMultiplyTask(A, B, C, 0, A.row,
+                SparseMatrixMultiplyTask.defaultGrain(A, numThreads)));
+        pool.shutdown();
+        return C;
+    }
+
+    /**
+     * Multiplies two off-heap matrices using ForkJoin parallelism. The result
+     * owns its own arena, so the caller must close() it
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @return Result matrix C = A * B, allocated off-heap
+     */
+    public static OffHeapMatrix multiplyMatrices(OffHeapMatrix A, OffHeapMatrix B, int numThreads) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        OffHeapMatrix C = new OffHeapMatrix(A.row, B.col);
+        multiplyInto(A, B, C, numThreads);
+        return C;
+    }
+
+    /**
+     * Multiplies two off-heap matrices into a result allocated in the given
+     * arena; the result is freed when the arena is closed
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param arena Shared arena that owns the result
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @return Result matrix C = A * B, allocated off-heap
+     */
+    public static OffHeapMatrix multiplyMatrices(OffHeapMatrix A, OffHeapMatrix B, Arena arena, int numThreads) {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        OffHeapMatrix C = new OffHeapMatrix(A.row, B.col, arena);
+        multiplyInto(A, B, C, numThreads);
+        return C;
+    }
+
+    private static void multiplyInto(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C, int numThreads) {
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new OffHeapMatrixMultiplyTask(A, B, C, 0, A.row));
+        pool.shutdown();
+    }
+
+    /**
+     * Multiplies two file-backed matrices tile by tile into a new file-backed
+     * result, keeping heap use at three tiles per worker
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param output File that will hold the result
+     * @param tileSize Edge length of the square tiles streamed from the mappings
+     * @param numThreads Number of threads to use in the ForkJoinPool
+     * @return Result matrix C = A * B, mapped from output
+     * @throws IOException If the result file cannot be created or mapped
+     */
+    public static MappedMatrix multiplyMatrices(MappedMatrix A, MappedMatrix B, Path output,
+            int tileSize, int numThreads) throws IOException {
+        if (A.col != B.row) {
+            throw new IllegalArgumentException("Matrix dimensions are incompatible for multiplication");
+        }
+
+        MappedMatrix C = MappedMatrix.create(output, A.row, B.col);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        pool.invoke(new MappedMatrixMultiplyTask(A, B, C, tileSize, 0,
+                MappedMatrixMultiplyTask.tileCount(C, tileSize)));
+        pool.shutdown();
+        C.flush();
         return C;
     }
 
@@ -93,9 +920,20 @@ public class MatrixMultiplier {
      * @return Transposed matrix
      */
     public static double[][] transpose(double[][] matrix) {
+        double[][] result = new double[matrix[0].length][matrix.length];
+        transposeInto(matrix, result);
+        return result;
+    }
+
+    /**
+     * Transpose into an existing cols x rows array
+     *
+     * @param matrix Original matrix
+     * @param result Destination, every element overwritten
+     */
+    public static void transposeInto(double[][] matrix, double[][] result) {
         int rows = matrix.length;
         int cols = matrix[0].length;
-        double[][] result = new double[cols][rows];
 
         // Process in blocks for better cache behavior
         final int blockSize = 32;
@@ -112,8 +950,6 @@ public class MatrixMultiplier {
                 }
             }
         }
-
-        return result;
     }
 
     /**
@@ -1,15 +1,136 @@
 package Version3;
 
+import Configuration.KernelRegistry;
+import Configuration.MatrixKernel;
+import Configuration.ProgressTracker;
+import Configuration.TuningProfile;
+
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Enhanced MatrixMultiplyTask with adaptive parameters and improved cache
- * efficiency
+ * efficiency. The task only splits the product; the leaves run a
+ * MatrixKernel, so any registered kernel can be used without another task
+ * class.
+ *
+ * Splitting is over 2D tiles of C: each step halves the longer side of the
+ * tile, rows of A or columns of B. Whether a tile splits is decided while
+ * the product runs, from the tile's flop count:
+ * - at most MIN_LEAF_FLOPS: never, a smaller leaf costs more in task
+ *   overhead than it can win in balance
+ * - more than the cap: always. The cap is the cost of the row band the
+ *   threshold describes, and never more than an even share of the product
+ *   per worker, so a few rows times many columns (64 x 10000 by
+ *   10000 x 8000, say) still splits into column tiles for every worker
+ * - in between: only while the worker's deque holds no more than
+ *   SURPLUS_LIMIT tasks beyond what idle workers could steal
+ *   (getSurplusQueuedTaskCount). Workers that run out of work make the
+ *   surplus drop and the tiles near them split finer; a busy pool stops
+ *   splitting early and keeps leaves large. A pool of one worker has
+ *   nobody to steal and never splits below the cap.
+ * The number of leaves therefore follows the pool's parallelism and load
+ * without retuning the threshold per machine. A Report passed to the
+ * constructor collects the task and leaf counts and the spread of leaf
+ * durations. CompleterMultiplyTask applies the same rule without joins.
  */
 public class MatrixMultiplyTask extends RecursiveAction {
 
-    // Adaptive parameters for different matrix sizes
-    private static int determineThreshold(int matrixSize) {
+    /** Smallest leaf worth a task of its own: a 64 x 64 x 64 product */
+    static final long MIN_LEAF_FLOPS = 2L * 64 * 64 * 64;
+    /** Surplus of queued tasks above which a tile under the cap stops splitting */
+    static final int SURPLUS_LIMIT = 3;
+    /** Leaves per worker for drivers that split up front and cannot watch stealing */
+    static final int LEAVES_PER_WORKER = 4;
+
+    /**
+     * Task statistics of one run: how many tasks were allocated, how many
+     * of them were leaves, how many tiles were split because idle workers
+     * were waiting rather than because they were over the cap, and how long
+     * the leaves took. Tasks record concurrently without locking
+     */
+    public static final class Report {
+        private final LongAdder tasks = new LongAdder();
+        private final LongAdder leaves = new LongAdder();
+        private final LongAdder adaptiveSplits = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final DoubleAdder squaredMillis = new DoubleAdder();
+        private final LongAccumulator minNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        void leaf(long nanos) {
+            leaves.increment();
+            totalNanos.add(nanos);
+            double millis = nanos / 1_000_000.0;
+            squaredMillis.add(millis * millis);
+            minNanos.accumulate(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        void adaptiveSplit() {
+            adaptiveSplits.increment();
+        }
+
+        void task() {
+            tasks.increment();
+        }
+
+        public long taskCount() {
+            return tasks.sum();
+        }
+
+        public long leafCount() {
+            return leaves.sum();
+        }
+
+        public long adaptiveSplitCount() {
+            return adaptiveSplits.sum();
+        }
+
+        public double meanLeafMillis() {
+            long count = leaves.sum();
+            return count == 0 ? 0 : totalNanos.sum() / 1_000_000.0 / count;
+        }
+
+        public double minLeafMillis() {
+            return leaves.sum() == 0 ? 0 : minNanos.get() / 1_000_000.0;
+        }
+
+        public double maxLeafMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        /**
+         * Standard deviation of the leaf durations in ms
+         */
+        public double leafMillisStdDev() {
+            long count = leaves.sum();
+            if (count == 0) {
+                return 0;
+            }
+            double mean = meanLeafMillis();
+            return Math.sqrt(Math.max(0, squaredMillis.sum() / count - mean * mean));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tasks, %d leaves (%d adaptive splits), leaf ms min %.3f / mean %.3f / max %.3f, stddev %.3f",
+                    taskCount(), leafCount(), adaptiveSplitCount(), minLeafMillis(), meanLeafMillis(), maxLeafMillis(),
+                    leafMillisStdDev());
+        }
+    }
+
+    // Adaptive parameters for different matrix sizes; a tuned profile for
+    // this machine (see Autotuner) takes precedence over the fixed buckets
+    static int determineThreshold(int matrixSize) {
+        TuningProfile.SizeClass tuned = MatrixMultiplier.tuningProfile().find(matrixSize);
+        return tuned != null ? tuned.threshold : determineDefaultThreshold(matrixSize);
+    }
+
+    static int determineDefaultThreshold(int matrixSize) {
         if (matrixSize <= 500) {
             return 64;
         }
@@ -19,7 +140,12 @@ public class MatrixMultiplyTask extends RecursiveAction {
         return 256;
     }
 
-    private static int determineBlockSize(int matrixSize) {
+    static int determineBlockSize(int matrixSize) {
+        TuningProfile.SizeClass tuned = MatrixMultiplier.tuningProfile().find(matrixSize);
+        return tuned != null ? tuned.blockSize : determineDefaultBlockSize(matrixSize);
+    }
+
+    static int determineDefaultBlockSize(int matrixSize) {
         if (matrixSize <= 1000) {
             return 32;
         }
@@ -29,9 +155,15 @@ public class MatrixMultiplyTask extends RecursiveAction {
     // Instance variables
     private final double[][] A, B, C;
     private final int startRow, endRow;
+    private final int startCol, endCol;
     private final int threshold;
     private final int blockSize;
-    private final boolean isTransposed;
+    private final ProgressTracker progress;
+    private final MatrixKernel kernel;
+    private final Report report;
+    // Flop cap above which a tile always splits, derived from threshold and
+    // the pool by the root task
+    private long leafFlops;
 
     /**
      * Constructor for matrix multiplication task
@@ -45,16 +177,77 @@ public class MatrixMultiplyTask extends RecursiveAction {
      */
     public MatrixMultiplyTask(double[][] A, double[][] B, double[][] C,
             int startRow, int endRow, boolean isTransposed) {
+        this(A, B, C, startRow, endRow, isTransposed, ProgressTracker.NONE);
+    }
+
+    /**
+     * Constructor that reports finished elements of C to a progress tracker
+     *
+     * @param progress Tracker advanced by the element count of every leaf
+     */
+    public MatrixMultiplyTask(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, boolean isTransposed, ProgressTracker progress) {
+        this(A, B, C, startRow, endRow, progress,
+                isTransposed ? KernelRegistry.BLOCKED_TRANSPOSED : KernelRegistry.BLOCKED);
+    }
+
+    /**
+     * Constructor that selects the leaf kernel
+     *
+     * @param B Second matrix, transposed when kernel.transposedB() is true
+     * @param progress Tracker advanced by the element count of every leaf
+     * @param kernel Kernel run on every leaf tile
+     */
+    public MatrixMultiplyTask(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, ProgressTracker progress, MatrixKernel kernel) {
+        // Compute adaptive parameters based on matrix size
+        this(A, B, C, startRow, endRow, progress, kernel,
+                determineThreshold(MatrixMultiplier.tuningSize(A.length, C[0].length)),
+                determineBlockSize(MatrixMultiplier.tuningSize(A.length, C[0].length)));
+    }
+
+    /**
+     * Constructor with explicit leaf size and block size, used when sweeping
+     * parameters
+     *
+     * @param threshold Rows of a full-width band above which a tile always splits
+     * @param blockSize Block size passed to the kernel
+     */
+    public MatrixMultiplyTask(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, ProgressTracker progress, MatrixKernel kernel, int threshold, int blockSize) {
+        this(A, B, C, startRow, endRow, progress, kernel, threshold, blockSize, null);
+    }
+
+    /**
+     * Constructor that also fills a leaf report
+     *
+     * @param report Collects leaf count and durations, or null
+     */
+    public MatrixMultiplyTask(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, ProgressTracker progress, MatrixKernel kernel, int threshold, int blockSize,
+            Report report) {
+        this(A, B, C, startRow, endRow, 0, C[0].length, progress, kernel, threshold, blockSize, 0, report);
+    }
+
+    private MatrixMultiplyTask(double[][] A, double[][] B, double[][] C,
+            int startRow, int endRow, int startCol, int endCol, ProgressTracker progress,
+            MatrixKernel kernel, int threshold, int blockSize, long leafFlops, Report report) {
         this.A = A;
         this.B = B;
         this.C = C;
         this.startRow = startRow;
         this.endRow = endRow;
-        this.isTransposed = isTransposed;
-
-        // Compute adaptive parameters based on matrix size
-        this.threshold = determineThreshold(A.length);
-        this.blockSize = determineBlockSize(A.length);
+        this.startCol = startCol;
+        this.endCol = endCol;
+        this.progress = progress;
+        this.kernel = kernel;
+        this.threshold = threshold;
+        this.blockSize = blockSize;
+        this.leafFlops = leafFlops;
+        this.report = report;
+        if (report != null) {
+            report.task();
+        }
     }
 
     /**
@@ -65,106 +258,80 @@ public class MatrixMultiplyTask extends RecursiveAction {
         this(A, B, C, startRow, endRow, false);
     }
 
-    @Override
-    protected void compute() {
-        int rows = endRow - startRow;
-
-        if (rows <= threshold) {
-            // Small enough chunk - compute directly
-            multiplyBlockedOptimized();
-        } else {
-            // Split into smaller tasks
-            int mid = (startRow + endRow) / 2;
-            MatrixMultiplyTask task1 = new MatrixMultiplyTask(A, B, C, startRow, mid, isTransposed);
-            MatrixMultiplyTask task2 = new MatrixMultiplyTask(A, B, C, mid, endRow, isTransposed);
-            invokeAll(task1, task2);
-        }
+    /**
+     * Flop cap for a rows x cols x k product: the cost of a full-width band
+     * of threshold rows, but no more than an even share per worker and no
+     * less than MIN_LEAF_FLOPS
+     */
+    static long leafFlops(int rows, int cols, int k, int threshold, int parallelism) {
+        long total = 2L * rows * cols * k;
+        long band = 2L * threshold * cols * k;
+        long share = total / parallelism;
+        return Math.max(MIN_LEAF_FLOPS, Math.min(band, share));
     }
 
     /**
-     * Enhanced blocked matrix multiplication with better cache locality Uses
-     * transposed or regular matrix B based on the isTransposed flag
+     * Flop cap of a root task running in the current pool, or in the
+     * common pool when called outside one
      */
-    private void multiplyBlockedOptimized() {
-        final int n = C[0].length;  // Columns in result matrix
-        final int k = A[0].length;  // Inner dimension (columns of A, rows of B)
-
-        // Process each block in cache-friendly order
-        for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
-            int iLimit = Math.min(i0 + blockSize, endRow);
-
-            for (int j0 = 0; j0 < n; j0 += blockSize) {
-                int jLimit = Math.min(j0 + blockSize, n);
-
-                for (int k0 = 0; k0 < k; k0 += blockSize) {
-                    int kLimit = Math.min(k0 + blockSize, k);
-
-                    // Process current block
-                    for (int i = i0; i < iLimit; i++) {
-                        for (int j = j0; j < jLimit; j++) {
-                            double sum = C[i][j]; // Load accumulated value
-
-                            if (isTransposed) {
-                                // If B is transposed, use B[j][k] instead of B[k][j]
-                                for (int kk = k0; kk < kLimit; kk++) {
-                                    sum += A[i][kk] * B[j][kk];
-                                }
-                            } else {
-                                // Standard matrix multiplication
-                                for (int kk = k0; kk < kLimit; kk++) {
-                                    sum += A[i][kk] * B[kk][j];
-                                }
-                            }
-
-                            C[i][j] = sum; // Store accumulated value
-                        }
-                    }
-                }
-            }
-        }
+    static long rootLeafFlops(int rows, int cols, int k, int threshold) {
+        ForkJoinPool pool = getPool();
+        int parallelism = pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+        return leafFlops(rows, cols, k, threshold, parallelism);
     }
 
     /**
-     * Alternative implementation using loop unrolling for potential SIMD
-     * optimization This method can be faster on processors with good
-     * vectorization support
+     * The split rule of the class comment for a tile of the given flops;
+     * a single element is never split
      */
-    private void multiplyUnrolled() {
-        final int n = C[0].length;
-        final int k = A[0].length;
-
-        for (int i = startRow; i < endRow; i++) {
-            for (int j = 0; j < n; j++) {
-                // Accumulate in multiple independent variables for potential SIMD
-                double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
-
-                // Process 4 elements at once
-                int kLimit = (k / 4) * 4;
-                for (int kk = 0; kk < kLimit; kk += 4) {
-                    if (isTransposed) {
-                        sum0 += A[i][kk] * B[j][kk];
-                        sum1 += A[i][kk + 1] * B[j][kk + 1];
-                        sum2 += A[i][kk + 2] * B[j][kk + 2];
-                        sum3 += A[i][kk + 3] * B[j][kk + 3];
-                    } else {
-                        sum0 += A[i][kk] * B[kk][j];
-                        sum1 += A[i][kk + 1] * B[kk + 1][j];
-                        sum2 += A[i][kk + 2] * B[kk + 2][j];
-                        sum3 += A[i][kk + 3] * B[kk + 3][j];
-                    }
-                }
-
-                // Handle remaining elements
-                for (int kk = kLimit; kk < k; kk++) {
-                    if (isTransposed) {
-                        sum0 += A[i][kk] * B[j][kk];
-                    } else {
-                        sum0 += A[i][kk] * B[kk][j];
-                    }
-                }
-
-                C[i][j] = sum0 + sum1 + sum2 + sum3;
+    static boolean shouldSplit(int rows, int cols, long flops, long leafFlops, Report report) {
+        if (flops <= MIN_LEAF_FLOPS || (rows < 2 && cols < 2)) {
+            return false;
+        }
+        if (flops > leafFlops) {
+            return true;
+        }
+        // Under the cap: split only if there are thieves and they are short of work
+        ForkJoinPool pool = getPool();
+        boolean split = pool != null && pool.getParallelism() > 1 && getSurplusQueuedTaskCount() <= SURPLUS_LIMIT;
+        if (split && report != null) {
+            report.adaptiveSplit();
+        }
+        return split;
+    }
+
+    @Override
+    protected void compute() {
+        int rows = endRow - startRow;
+        int cols = endCol - startCol;
+        int k = A[0].length;
+        long flops = 2L * rows * cols * k;
+
+        if (leafFlops == 0) {
+            leafFlops = rootLeafFlops(rows, cols, k, threshold);
+        }
+
+        if (!shouldSplit(rows, cols, flops, leafFlops, report)) {
+            // Small enough tile - compute directly
+            long start = report != null ? System.nanoTime() : 0;
+            kernel.multiplyTile(A, B, C, startRow, endRow, startCol, endCol, blockSize);
+            if (report != null) {
+                report.leaf(System.nanoTime() - start);
             }
+            progress.advance((long) rows * cols);
+        } else if (rows >= cols) {
+            // Split the longer side: rows of A
+            int mid = (startRow + endRow) >>> 1;
+            invokeAll(child(startRow, mid, startCol, endCol), child(mid, endRow, startCol, endCol));
+        } else {
+            // Split the longer side: columns of B
+            int mid = (startCol + endCol) >>> 1;
+            invokeAll(child(startRow, endRow, startCol, mid), child(startRow, endRow, mid, endCol));
         }
     }
+
+    private MatrixMultiplyTask child(int fromRow, int toRow, int fromCol, int toCol) {
+        return new MatrixMultiplyTask(A, B, C, fromRow, toRow, fromCol, toCol, progress, kernel,
+                threshold, blockSize, leafFlops, report);
+    }
 }
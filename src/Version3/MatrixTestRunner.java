@@ -1,5 +1,8 @@
 package Version3;
 
+import Configuration.KernelRegistry;
+import Configuration.MatrixFile;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -151,9 +154,9 @@ public class MatrixTestRunner {
             for (int size : sizes) {
                 System.out.println("Testing matrix size: " + size + "x" + size);
 
-                // Generate matrices once per size
-                double[][] A = MatrixMultiplier.generateRandomMatrix(size, size);
-                double[][] B = MatrixMultiplier.generateRandomMatrix(size, size);
+                // Generate matrices once per size (reloaded from -Dmatrix.input.dir when set)
+                double[][] A = MatrixFile.inputArray("A", size, size);
+                double[][] B = MatrixFile.inputArray("B", size, size);
 
                 // Reference time for single thread
                 double singleThreadTime = 0;
@@ -281,7 +284,7 @@ public class MatrixTestRunner {
 
                     ForkJoinPool pool = new ForkJoinPool(threads);
                     pool.invoke(new SimpleMatrixBenchmark.CustomThresholdTask(
-                            A, transposedB, C, 0, A.length, threshold, 32, true));
+                            A, transposedB, C, 0, A.length, threshold, 32, KernelRegistry.BLOCKED_TRANSPOSED));
                     pool.shutdown();
 
                     long endTime = System.nanoTime();
@@ -522,7 +525,7 @@ public class MatrixTestRunner {
 
                     ForkJoinPool pool = new ForkJoinPool(threads);
                     pool.invoke(new SimpleMatrixBenchmark.CustomThresholdTask(
-                            A, B, C, 0, A.length, 128, blockSize, false));
+                            A, B, C, 0, A.length, 128, blockSize, KernelRegistry.BLOCKED));
                     pool.shutdown();
 
                     long endTime = System.nanoTime();
@@ -548,7 +551,7 @@ public class MatrixTestRunner {
 
                     ForkJoinPool pool = new ForkJoinPool(threads);
                     pool.invoke(new SimpleMatrixBenchmark.CustomThresholdTask(
-                            A, transposedB, C, 0, A.length, 128, blockSize, true));
+                            A, transposedB, C, 0, A.length, 128, blockSize, KernelRegistry.BLOCKED_TRANSPOSED));
                     pool.shutdown();
 
                     long endTime = System.nanoTime();
@@ -0,0 +1,52 @@
+package Version3;
+
+import Configuration.OffHeapMatrix;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin row-splitting task over off-heap OffHeapMatrix operands. The
+ * leaves run the blocked i-k-j kernel straight against the MemorySegments,
+ * so no heap copy of A, B or C is ever made
+ */
+public class OffHeapMatrixMultiplyTask extends RecursiveAction {
+
+    private final OffHeapMatrix A, B, C;
+    private final int startRow, endRow;
+    private final int threshold;
+    private final int blockSize;
+
+    /**
+     * Constructor for off-heap matrix multiplication task
+     *
+     * @param A First matrix
+     * @param B Second matrix
+     * @param C Result matrix, expected to be zeroed
+     * @param startRow Starting row index
+     * @param endRow Ending row index (exclusive)
+     */
+    public OffHeapMatrixMultiplyTask(OffHeapMatrix A, OffHeapMatrix B, OffHeapMatrix C,
+            int startRow, int endRow) {
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.startRow = startRow;
+        this.endRow = endRow;
+        this.threshold = MatrixMultiplyTask.determineThreshold(MatrixMultiplier.tuningSize(A.row, C.col));
+        this.blockSize = MatrixMultiplyTask.determineBlockSize(MatrixMultiplier.tuningSize(A.row, C.col));
+    }
+
+    @Override
+    protected void compute() {
+        int rows = endRow - startRow;
+
+        if (rows <= threshold) {
+            OffHeapMatrix.multiplyRowsBlocked(A, B, C, startRow, endRow, blockSize);
+        } else {
+            int mid = (startRow + endRow) / 2;
+            OffHeapMatrixMultiplyTask task1 = new OffHeapMatrixMultiplyTask(A, B, C, startRow, mid);
+            OffHeapMatrixMultiplyTask task2 = new OffHeapMatrixMultiplyTask(A, B, C, mid, endRow);
+            invokeAll(task1, task2);
+        }
+    }
+}
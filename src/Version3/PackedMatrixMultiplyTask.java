@@ -0,0 +1,92 @@
+package Version3;
+
+import Configuration.FlatMatrix;
+import Configuration.MatrixWorkspace;
+import Configuration.PackedGemm;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin task over the mc-tall row panels of one (jc, pc) step of the
+ * packed engine. B for the step has already been packed and is shared
+ * read-only; every leaf packs its own panels of A into a buffer leased from
+ * the workspace and runs the macro-kernel on them. Leaves own disjoint row
+ * panels of C, so no synchronization is needed
+ */
+public class PackedMatrixMultiplyTask extends RecursiveAction {
+
+    private final FlatMatrix A, C;
+    private final double[] packedB;
+    private final int jc, pc, nc, kc;
+    private final PackedGemm.Blocking blocking;
+    private final boolean simd;
+    private final MatrixWorkspace workspace;
+    private final int firstPanel, lastPanel;
+
+    /**
+     * Constructor for packed multiplication task
+     *
+     * @param A First matrix
+     * @param C Result matrix, accumulated into
+     * @param packedB kc x nc block of B at (pc, jc), packed by PackedGemm.packB
+     * @param jc First column of the block
+     * @param pc First row of the block (first column of the matching A slice)
+     * @param nc Columns in the block
+     * @param kc Rows in the block
+     * @param blocking Cache blocking; mc sets the panel height
+     * @param simd Whether to use the Vector API micro-kernel
+     * @param workspace Source of packed A buffers
+     * @param firstPanel First row panel handled by this task
+     * @param lastPanel Last row panel handled by this task (exclusive)
+     */
+    public PackedMatrixMultiplyTask(FlatMatrix A, FlatMatrix C, double[] packedB,
+            int jc, int pc, int nc, int kc, PackedGemm.Blocking blocking, boolean simd,
+            MatrixWorkspace workspace, int firstPanel, int lastPanel) {
+        this.A = A;
+        this.C = C;
+        this.packedB = packedB;
+        this.jc = jc;
+        this.pc = pc;
+        this.nc = nc;
+        this.kc = kc;
+        this.blocking = blocking;
+        this.simd = simd;
+        this.workspace = workspace;
+        this.firstPanel = firstPanel;
+        this.lastPanel = lastPanel;
+    }
+
+    /**
+     * Number of mc-tall row panels of C
+     */
+    public static int panelCount(FlatMatrix C, PackedGemm.Blocking blocking) {
+        return (C.row + blocking.mc - 1) / blocking.mc;
+    }
+
+    @Override
+    protected void compute() {
+        if (lastPanel - firstPanel <= 1) {
+            if (lastPanel > firstPanel) {
+                multiplyPanel(firstPanel);
+            }
+        } else {
+            int mid = (firstPanel + lastPanel) >>> 1;
+            invokeAll(new PackedMatrixMultiplyTask(A, C, packedB, jc, pc, nc, kc, blocking, simd, workspace, firstPanel, mid),
+                    new PackedMatrixMultiplyTask(A, C, packedB, jc, pc, nc, kc, blocking, simd, workspace, mid, lastPanel));
+        }
+    }
+
+    private void multiplyPanel(int panel) {
+        int ic = panel * blocking.mc;
+        int mc = Math.min(blocking.mc, A.row - ic);
+        double[] packedA = workspace.leaseScratch(PackedGemm.roundUp(blocking.mc, PackedGemm.MR) * blocking.kc);
+
+        try {
+            PackedGemm.packA(A, ic, pc, mc, kc, PackedGemm.MR, packedA);
+            PackedGemm.macroKernel(packedA, packedB, C, ic, jc, mc, nc, kc, simd);
+        } finally {
+            // Return the buffer even when the kernel throws so the pool does not leak it
+            workspace.release(packedA);
+        }
+    }
+}
@@ -1,5 +1,20 @@
 package Version3;
 
+import Configuration.CsrMatrix;
+import Configuration.FlatMatrix;
+import Configuration.FloatMatrix;
+import Configuration.KernelRegistry;
+import Configuration.Matrix;
+import Configuration.MatrixKernel;
+import Configuration.OperandCache;
+import Configuration.PackedGemm;
+import Configuration.RandomFill;
+import Version2.MultiplyWithThreadPool;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
 
@@ -15,6 +30,8 @@ public class SimpleMatrixBenchmark {
     private static final int[] BLOCK_SIZES = {16, 32, 64, 128};
     private static final int WARM_UP_ITERATIONS = 2;
     private static final int MEASUREMENT_ITERATIONS = 3;
+    private static final long SEED = 42;
+    private static final int SEQUENTIAL_KERNEL_LIMIT = 1000;
 
     public static void main(String[] args) {
         System.out.println("Matrix Multiplication Benchmark");
@@ -32,6 +49,45 @@ public class SimpleMatrixBenchmark {
 
         // 4. Test transposed vs. non-transposed matrices
         benchmarkTranspose();
+
+        // 5. Jagged double[][] vs. contiguous flat storage
+        benchmarkFlatStorage();
+
+        // 6. float32 vs. float64 throughput and error
+        benchmarkFloatPrecision();
+
+        // 7. Dense vs. CSR sparse multiplication at several densities
+        benchmarkSparse();
+
+        // 8. Re-transposing a shared B per call vs. a cached transposed B
+        benchmarkOperandCache();
+
+        // 9. Shared java.util.Random fill vs. seeded parallel fill
+        benchmarkRandomFill();
+
+        // 10. Strassen-Winograd vs. the row-splitting ForkJoin engine
+        benchmarkStrassen();
+
+        // 11. Every registered leaf kernel under every driver
+        benchmarkKernels();
+
+        // 12. Packed GotoBLAS-style engine in GFLOPS
+        benchmarkPackedGemm();
+
+        // 13. Split-K vs. 2D tiles on small-output, long-k products
+        benchmarkSplitK();
+
+        // 14. Pools built per call vs. the warm pools of a MatrixEngine
+        benchmarkEngineLatency();
+
+        // 15. ForkJoin tasks vs. a persistent worker team on small products
+        benchmarkWorkerTeam();
+
+        // 16. Leaves produced by the adaptive splitting
+        benchmarkAdaptiveSplitting();
+
+        // 17. RecursiveAction joins vs. CountedCompleter trees
+        benchmarkCompleter();
     }
 
     /**
@@ -44,10 +100,15 @@ public class SimpleMatrixBenchmark {
         for (int size : MATRIX_SIZES) {
             double singleThreadTime = 0;
 
+            // Generate once per size from fixed seeds so every run and every
+            // thread count multiplies the same data, outside the timed region
+            double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+
             for (int threads : THREAD_COUNTS) {
                 // Warm up
                 for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
-                    runTest(size, threads);
+                    runTest(A, B, threads);
                 }
 
                 // Actual measurement
@@ -64,7 +125,7 @@ public class SimpleMatrixBenchmark {
 
                     // Run test
                     long startTime = System.nanoTime();
-                    runTest(size, threads);
+                    runTest(A, B, threads);
                     long endTime = System.nanoTime();
 
                     // Calculate metrics
@@ -114,14 +175,14 @@ public class SimpleMatrixBenchmark {
         for (int threshold : THRESHOLDS) {
             // Warm up
             for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
-                runCustomTest(A, transposedB, threads, threshold, 32, true);
+                runCustomTest(A, transposedB, threads, threshold, 32, KernelRegistry.BLOCKED_TRANSPOSED);
             }
 
             // Measure
             double totalTime = 0;
             for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
                 long startTime = System.nanoTime();
-                runCustomTest(A, transposedB, threads, threshold, 32, true);
+                runCustomTest(A, transposedB, threads, threshold, 32, KernelRegistry.BLOCKED_TRANSPOSED);
                 long endTime = System.nanoTime();
 
                 double time = (endTime - startTime) / 1_000_000.0;
@@ -151,14 +212,14 @@ public class SimpleMatrixBenchmark {
         for (int blockSize : BLOCK_SIZES) {
             // Warm up
             for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
-                runCustomTest(A, transposedB, threads, 128, blockSize, true);
+                runCustomTest(A, transposedB, threads, 128, blockSize, KernelRegistry.BLOCKED_TRANSPOSED);
             }
 
             // Measure
             double totalTime = 0;
             for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
                 long startTime = System.nanoTime();
-                runCustomTest(A, transposedB, threads, 128, blockSize, true);
+                runCustomTest(A, transposedB, threads, 128, blockSize, KernelRegistry.BLOCKED_TRANSPOSED);
                 long endTime = System.nanoTime();
 
                 double time = (endTime - startTime) / 1_000_000.0;
@@ -188,14 +249,14 @@ public class SimpleMatrixBenchmark {
             // Test standard multiplication (no transpose)
             // Warm up
             for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
-                runCustomTest(A, B, threads, 128, 32, false);
+                runCustomTest(A, B, threads, 128, 32, KernelRegistry.BLOCKED);
             }
 
             // Measure standard
             double standardTotalTime = 0;
             for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
                 long startTime = System.nanoTime();
-                runCustomTest(A, B, threads, 128, 32, false);
+                runCustomTest(A, B, threads, 128, 32, KernelRegistry.BLOCKED);
                 long endTime = System.nanoTime();
 
                 double time = (endTime - startTime) / 1_000_000.0;
@@ -206,14 +267,14 @@ public class SimpleMatrixBenchmark {
             // Test transposed multiplication
             // Warm up
             for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
-                runCustomTest(A, transposedB, threads, 128, 32, true);
+                runCustomTest(A, transposedB, threads, 128, 32, KernelRegistry.BLOCKED_TRANSPOSED);
             }
 
             // Measure transposed
             double transposedTotalTime = 0;
             for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
                 long startTime = System.nanoTime();
-                runCustomTest(A, transposedB, threads, 128, 32, true);
+                runCustomTest(A, transposedB, threads, 128, 32, KernelRegistry.BLOCKED_TRANSPOSED);
                 long endTime = System.nanoTime();
 
                 double time = (endTime - startTime) / 1_000_000.0;
@@ -230,13 +291,515 @@ public class SimpleMatrixBenchmark {
     }
 
     /**
-     * Run standard matrix multiplication test
+     * Benchmark jagged double[][] storage against contiguous FlatMatrix storage
      */
-    private static void runTest(int size, int threads) {
-        // Generate matrices
-        double[][] A = MatrixMultiplier.generateRandomMatrix(size, size);
-        double[][] B = MatrixMultiplier.generateRandomMatrix(size, size);
+    private static void benchmarkFlatStorage() {
+        System.out.println("\n=== Flat Storage Benchmark ===");
+        System.out.println("Size\tJagged(ms)\tFlat(ms)\tImprovement(%)");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int size : MATRIX_SIZES) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(size, size);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size);
+            FlatMatrix flatA = FlatMatrix.from(A);
+            FlatMatrix flatB = FlatMatrix.from(B);
+
+            // Warm up
+            for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+                MatrixMultiplier.multiplyMatrices(A, B, threads);
+                MatrixMultiplier.multiplyMatrices(flatA, flatB, threads);
+            }
+
+            double jaggedTotalTime = 0;
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                long startTime = System.nanoTime();
+                MatrixMultiplier.multiplyMatrices(A, B, threads);
+                long endTime = System.nanoTime();
+                jaggedTotalTime += (endTime - startTime) / 1_000_000.0;
+            }
+            double jaggedAvgTime = jaggedTotalTime / MEASUREMENT_ITERATIONS;
+
+            double flatTotalTime = 0;
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                long startTime = System.nanoTime();
+                MatrixMultiplier.multiplyMatrices(flatA, flatB, threads);
+                long endTime = System.nanoTime();
+                flatTotalTime += (endTime - startTime) / 1_000_000.0;
+            }
+            double flatAvgTime = flatTotalTime / MEASUREMENT_ITERATIONS;
+
+            double improvement = ((jaggedAvgTime - flatAvgTime) / jaggedAvgTime) * 100;
+
+            System.out.printf("%d\t%.2f\t\t%.2f\t\t%.2f%%\n",
+                    size, jaggedAvgTime, flatAvgTime, improvement);
+        }
+    }
+
+    /**
+     * Benchmark double against float storage, with float and double
+     * accumulation, for the sequential, thread-pool and ForkJoin engines.
+     * Error is the max relative error against the double result.
+     */
+    private static void benchmarkFloatPrecision() {
+        System.out.println("\n=== Float vs. Double Precision Benchmark ===");
+        System.out.println("Size\tEngine\t\tDouble(ms)\tFloat(ms)\tFloat+DAcc(ms)\tFloatErr\tFloat+DAccErr");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int size : MATRIX_SIZES) {
+            FlatMatrix A = FlatMatrix.from(MatrixMultiplier.generateRandomMatrix(size, size));
+            FlatMatrix B = FlatMatrix.from(MatrixMultiplier.generateRandomMatrix(size, size));
+            FloatMatrix floatA = FloatMatrix.from(A);
+            FloatMatrix floatB = FloatMatrix.from(B);
+            FlatMatrix reference = MatrixMultiplier.multiplyMatrices(A, B, threads);
+
+            try {
+                printPrecisionRow(size, "Sequential",
+                        averageMillis(() -> A.multiplication(B)),
+                        averageMillis(() -> floatA.multiplication(floatB, false)),
+                        averageMillis(() -> floatA.multiplication(floatB, true)),
+                        floatA.multiplication(floatB, false).maxRelativeError(reference),
+                        floatA.multiplication(floatB, true).maxRelativeError(reference));
+
+                printPrecisionRow(size, "ThreadPool",
+                        averageMillis(() -> MultiplyWithThreadPool.assignPerChunk(A, B)),
+                        averageMillis(() -> MultiplyWithThreadPool.assignPerChunk(floatA, floatB, false)),
+                        averageMillis(() -> MultiplyWithThreadPool.assignPerChunk(floatA, floatB, true)),
+                        MultiplyWithThreadPool.assignPerChunk(floatA, floatB, false).maxRelativeError(reference),
+                        MultiplyWithThreadPool.assignPerChunk(floatA, floatB, true).maxRelativeError(reference));
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+
+            printPrecisionRow(size, "ForkJoin",
+                    averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads)),
+                    averageMillis(() -> MatrixMultiplier.multiplyMatrices(floatA, floatB, threads, false)),
+                    averageMillis(() -> MatrixMultiplier.multiplyMatrices(floatA, floatB, threads, true)),
+                    MatrixMultiplier.multiplyMatrices(floatA, floatB, threads, false).maxRelativeError(reference),
+                    MatrixMultiplier.multiplyMatrices(floatA, floatB, threads, true).maxRelativeError(reference));
+        }
+    }
+
+    /**
+     * Benchmark dense ForkJoin multiplication against the CSR sparse x dense
+     * kernel as the fraction of nonzeros in A drops
+     */
+    private static void benchmarkSparse() {
+        System.out.println("\n=== Sparse (CSR) Benchmark ===");
+        System.out.println("Size\tDensity\tNNZ\t\tDense(ms)\tSparse(ms)\tSpeedup");
+
+        int size = 2000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double[] densities = {0.5, 0.1, 0.05, 0.01};
+        FlatMatrix B = FlatMatrix.from(MatrixMultiplier.generateRandomMatrix(size, size));
+
+        for (double density : densities) {
+            CsrMatrix sparseA = CsrMatrix.random(size, size, density, new Random(42));
+            FlatMatrix denseA = sparseA.toFlat();
+
+            double denseTime = averageMillis(() -> MatrixMultiplier.multiplyMatrices(denseA, B, threads));
+            double sparseTime = averageMillis(() -> MatrixMultiplier.multiplyMatrices(sparseA, B, threads));
+
+            System.out.printf("%d\t%.2f\t%d\t%.2f\t\t%.2f\t\t%.2fx\n",
+                    size, density, sparseA.nnz(), denseTime, sparseTime, denseTime / sparseTime);
+        }
+    }
+
+    /**
+     * Many short A's against one shared B, the case where transposing B on
+     * every call costs as much as the multiplication itself
+     */
+    private static void benchmarkOperandCache() {
+        System.out.println("\n=== Operand Cache Benchmark ===");
+        System.out.println("B Size\tA Rows\tBatch\tUncached(ms)\tCached(ms)\tSpeedup");
+
+        int aRows = 32;
+        int batch = 50;
+
+        for (int size : MATRIX_SIZES) {
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size);
+            double[][][] batchA = new double[batch][][];
+            for (int i = 0; i < batch; i++) {
+                batchA[i] = MatrixMultiplier.generateRandomMatrix(aRows, size);
+            }
+            OperandCache cache = new OperandCache(256L * 1024 * 1024);
+
+            double uncached = averageMillis(() -> {
+                for (double[][] A : batchA) {
+                    MatrixMultiplier.multiplyMatrices(A, B);
+                }
+            });
+            double cached = averageMillis(() -> {
+                for (double[][] A : batchA) {
+                    MatrixMultiplier.multiplyMatrices(A, B, 0, cache);
+                }
+            });
+
+            System.out.printf("%d\t%d\t%d\t%.2f\t\t%.2f\t\t%.2fx\n",
+                    size, aRows, batch, uncached, cached, uncached / cached);
+            System.out.println("\t" + cache);
+        }
+    }
+
+    /**
+     * Time the old single-threaded fill against the seeded parallel fill and
+     * check that the parallel fill is identical for every pool size
+     */
+    private static void benchmarkRandomFill() {
+        System.out.println("\n=== Random Fill Benchmark ===");
+        System.out.println("Size\tjava.util.Random(ms)\tParallel(ms)\tSpeedup\tSame for 1.." + THREAD_COUNTS[THREAD_COUNTS.length - 1] + " threads");
+
+        for (int size : new int[]{1000, 2000, 5000}) {
+            double sequential = averageMillis(() -> {
+                double[][] matrix = new double[size][size];
+                Random random = new Random();
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        matrix[i][j] = random.nextDouble() * 100;
+                    }
+                }
+            });
+            double parallel = averageMillis(() -> MatrixMultiplier.generateRandomMatrix(size, size, SEED));
+
+            double[][] reference = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+            boolean identical = true;
+            for (int threads : THREAD_COUNTS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                double[][] matrix = new double[size][size];
+                RandomFill.fill(size, SEED, (i, random) -> {
+                    for (int j = 0; j < size; j++) {
+                        matrix[i][j] = random.nextDouble() * 100;
+                    }
+                }, pool);
+                pool.shutdown();
+                identical &= Arrays.deepEquals(reference, matrix);
+            }
+
+            System.out.printf("%d\t%.2f\t\t\t%.2f\t\t%.2fx\t%s\n",
+                    size, sequential, parallel, sequential / parallel, identical);
+        }
+    }
+
+    /**
+     * Compare the Strassen-Winograd engine at several cutoffs with
+     * multiplyMatrices, reporting the error and the workspace it held
+     */
+    private static void benchmarkStrassen() {
+        System.out.println("\n=== Strassen-Winograd Benchmark ===");
+        System.out.println("Size\tCutoff\tForkJoin(ms)\tStrassen(ms)\tSpeedup\tMaxRelErr\tPeak(MB)\tBound(MB)");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int size : new int[]{1024, 2048, 4096}) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+            FlatMatrix flatA = FlatMatrix.from(A);
+            FlatMatrix flatB = FlatMatrix.from(B);
+            double[][] reference = MatrixMultiplier.multiplyMatrices(A, B, threads);
+            double forkJoinTime = averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads));
+
+            for (int cutoff : new int[]{64, 128, 256}) {
+                double strassenTime = averageMillis(() -> MatrixMultiplier.multiplyStrassen(flatA, flatB, cutoff, threads));
+
+                StrassenMultiplyTask.WorkspaceMeter meter = new StrassenMultiplyTask.WorkspaceMeter();
+                FlatMatrix C = MatrixMultiplier.multiplyStrassen(flatA, flatB, cutoff, threads, meter);
+                double maxError = 0;
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        double expected = reference[i][j];
+                        maxError = Math.max(maxError, Math.abs(C.get(i, j) - expected) / Math.abs(expected));
+                    }
+                }
+
+                int padded = StrassenMultiplyTask.paddedSize(size, cutoff);
+                int depth = StrassenMultiplyTask.parallelDepth(threads, StrassenMultiplyTask.levels(size, cutoff));
+                long bound = StrassenMultiplyTask.workspaceBound(padded, cutoff, depth);
+
+                System.out.printf("%d\t%d\t%.2f\t\t%.2f\t\t%.2fx\t%.2e\t%.1f\t\t%.1f\n",
+                        size, cutoff, forkJoinTime, strassenTime, forkJoinTime / strassenTime, maxError,
+                        meter.peakBytes() / (1024.0 * 1024.0), bound / (1024.0 * 1024.0));
+            }
+        }
+    }
 
+    /**
+     * Time every registered leaf kernel under the ForkJoin, thread-pool and
+     * sequential drivers, plus the flat engine with and without the Vector
+     * API kernel. Kernels added to the registry show up here automatically
+     */
+    private static void benchmarkKernels() {
+        System.out.println("\n=== Leaf Kernel Benchmark ===");
+        System.out.println("Registered kernels: " + KernelRegistry.all());
+        System.out.println("Size\tKernel\t\t\tForkJoin(ms)\tThreadPool(ms)\tSequential(ms)");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int size : MATRIX_SIZES) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+            Matrix matrixA = new Matrix(size, size);
+            Matrix matrixB = new Matrix(size, size);
+            matrixA.matrix = A;
+            matrixB.matrix = B;
+            Matrix C = new Matrix(size, size);
+
+            for (MatrixKernel kernel : KernelRegistry.all()) {
+                if (!kernel.isAvailable()) {
+                    System.out.printf("%d\t%-20s\tunavailable (run with --add-modules jdk.incubator.vector)\n",
+                            size, kernel.name());
+                    continue;
+                }
+                double forkJoin = averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads, kernel));
+                double pool = averageMillis(() -> MultiplyWithThreadPool.multiplyInto(matrixA, matrixB, C, kernel, executor));
+                // The slow kernels would take minutes single-threaded at the largest size
+                double sequential = size <= SEQUENTIAL_KERNEL_LIMIT
+                        ? averageMillis(() -> matrixA.multiplication(matrixB, kernel))
+                        : Double.NaN;
+
+                System.out.printf("%d\t%-20s\t%.2f\t\t%.2f\t\t%.2f\n",
+                        size, kernel.name(), forkJoin, pool, sequential);
+            }
+
+            FlatMatrix flatA = FlatMatrix.from(A);
+            FlatMatrix flatB = FlatMatrix.from(B);
+            double flat = averageMillis(() -> MatrixMultiplier.multiplyMatrices(flatA, flatB, threads, false));
+            System.out.printf("%d\t%-20s\t%.2f\n", size, "flat", flat);
+            if (KernelRegistry.isVectorApiAvailable()) {
+                double flatSimd = averageMillis(() -> MatrixMultiplier.multiplyMatrices(flatA, flatB, threads, true));
+                System.out.printf("%d\t%-20s\t%.2f\n", size, "flat-simd", flatSimd);
+            }
+        }
+
+        executor.shutdown();
+    }
+
+    /**
+     * GFLOPS of the packed engine for a few cache blockings, against the
+     * row-splitting ForkJoin engine
+     */
+    private static void benchmarkPackedGemm() {
+        System.out.println("\n=== Packed GEMM Benchmark (GFLOPS) ===");
+        System.out.println("Size\tBlocking\t\t\tForkJoin\tPacked\tPacked SIMD");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean simdAvailable = KernelRegistry.PACKED_SIMD.isAvailable();
+        PackedGemm.Blocking[] blockings = {
+                PackedGemm.Blocking.DEFAULT,
+                new PackedGemm.Blocking(64, 128, 2048),
+                new PackedGemm.Blocking(256, 384, 8192)
+        };
+
+        for (int size : MATRIX_SIZES) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+            FlatMatrix flatA = FlatMatrix.from(A);
+            FlatMatrix flatB = FlatMatrix.from(B);
+            double flops = 2.0 * size * size * size;
+            double forkJoin = gflops(flops, averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads)));
+
+            for (PackedGemm.Blocking blocking : blockings) {
+                double packed = gflops(flops, averageMillis(() ->
+                        MatrixMultiplier.multiplyPacked(flatA, flatB, blocking, threads, false)));
+                double packedSimd = simdAvailable
+                        ? gflops(flops, averageMillis(() -> MatrixMultiplier.multiplyPacked(flatA, flatB, blocking, threads, true)))
+                        : Double.NaN;
+
+                System.out.printf("%d\t%-24s\t%.2f\t\t%.2f\t%.2f\n",
+                        size, blocking, forkJoin, packed, packedSimd);
+            }
+        }
+    }
+
+    /**
+     * Products with a small C and a long inner dimension, computed over 2D
+     * tiles of C and by splitting k across the workers
+     */
+    private static void benchmarkSplitK() {
+        System.out.println("\n=== Split-K Benchmark (GFLOPS) ===");
+        System.out.println("Shape\t\t\tThreads\t2D tiles\tSplit-K");
+
+        int[][] shapes = {{64, 200_000, 64}, {128, 100_000, 128}, {256, 50_000, 256}};
+        MatrixKernel kernel = KernelRegistry.DEFAULT;
+
+        for (int[] shape : shapes) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(shape[0], shape[1], SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(shape[1], shape[2], SEED + 1);
+            double flops = 2.0 * shape[0] * shape[1] * shape[2];
+            String name = shape[0] + "x" + shape[1] + "x" + shape[2];
+
+            for (int threads : THREAD_COUNTS) {
+                double tiles = gflops(flops, averageMillis(() ->
+                        MatrixMultiplier.multiplyMatrices(A, B, threads, kernel, 64, 32)));
+                double splitK = gflops(flops, averageMillis(() ->
+                        MatrixMultiplier.multiplySplitK(A, B, threads, kernel)));
+                System.out.printf("%-16s\t%d\t%.2f\t\t%.2f\n", name, threads, tiles, splitK);
+            }
+        }
+    }
+
+    /**
+     * Latency of small products when every call builds its own pool, and
+     * on the cached, already started pools of one MatrixEngine
+     */
+    private static void benchmarkEngineLatency() {
+        System.out.println("\n=== Per-call Pools vs. MatrixEngine (ms per product) ===");
+        System.out.println("Size\tThreads\tForkJoin new\tForkJoin engine\tPool new\tPool engine");
+
+        MatrixKernel kernel = KernelRegistry.DEFAULT;
+        try (MatrixEngine engine = new MatrixEngine()) {
+            for (int size : new int[]{32, 64, 128, 256}) {
+                double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+                double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+                Matrix matrixA = new Matrix(size, size);
+                Matrix matrixB = new Matrix(size, size);
+                matrixA.matrix = A;
+                matrixB.matrix = B;
+
+                for (int threads : THREAD_COUNTS) {
+                    double forkJoinNew = averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads, kernel));
+                    double forkJoinEngine = averageMillis(() -> engine.multiply(A, B, threads, kernel));
+                    double poolNew = averageMillis(() -> {
+                        // What assignPerChunk does on every call
+                        ExecutorService executor = Executors.newFixedThreadPool(threads);
+                        MultiplyWithThreadPool.multiplyInto(matrixA, matrixB, new Matrix(size, size), kernel, executor);
+                        executor.shutdown();
+                    });
+                    double poolEngine = averageMillis(() -> engine.multiplyWithThreadPool(matrixA, matrixB, threads, kernel));
+                    System.out.printf("%d\t%d\t%.3f\t\t%.3f\t\t%.3f\t\t%.3f\n",
+                            size, threads, forkJoinNew, forkJoinEngine, poolNew, poolEngine);
+                }
+            }
+        }
+    }
+
+    /**
+     * Latency of small and medium products on a warm ForkJoinPool and on a
+     * warm WorkerTeam of the same size, both owned by one MatrixEngine
+     */
+    private static void benchmarkWorkerTeam() {
+        System.out.println("\n=== ForkJoin vs. Worker Team (ms per product) ===");
+        System.out.println("Size\tThreads\tForkJoin new\tForkJoin engine\tTeam engine");
+
+        MatrixKernel kernel = KernelRegistry.DEFAULT;
+        try (MatrixEngine engine = new MatrixEngine()) {
+            for (int size : new int[]{100, 200, 500}) {
+                double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+                double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+
+                for (int threads : THREAD_COUNTS) {
+                    double forkJoinNew = averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads, kernel));
+                    double forkJoinEngine = averageMillis(() -> engine.multiply(A, B, threads, kernel));
+                    double team = averageMillis(() -> engine.multiplyOnTeam(A, B, threads, kernel));
+                    System.out.printf("%d\t%d\t%.3f\t\t%.3f\t\t%.3f\n",
+                            size, threads, forkJoinNew, forkJoinEngine, team);
+                }
+            }
+        }
+    }
+
+    /**
+     * How many leaves the work-stealing-aware splitting makes per run and
+     * how evenly long they take, for square and for short, wide products
+     */
+    private static void benchmarkAdaptiveSplitting() {
+        System.out.println("\n=== Adaptive Splitting (leaves per run) ===");
+        System.out.println("Shape\t\t\tThreads\tTime (ms)\tLeaves");
+
+        int[][] shapes = {{500, 500, 500}, {1000, 1000, 1000}, {2000, 2000, 2000}, {64, 2000, 8000}};
+        MatrixKernel kernel = KernelRegistry.DEFAULT;
+
+        for (int[] shape : shapes) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(shape[0], shape[1], SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(shape[1], shape[2], SEED + 1);
+            String name = shape[0] + "x" + shape[1] + "x" + shape[2];
+
+            for (int threads : THREAD_COUNTS) {
+                double time = averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads, kernel));
+                // One more run to report on, so the report is not summed over the warm-up
+                MatrixMultiplyTask.Report report = new MatrixMultiplyTask.Report();
+                MatrixMultiplier.multiplyMatrices(A, B, threads, kernel, report);
+                System.out.printf("%-16s\t%d\t%.2f\t\t%s\n", name, threads, time, report);
+            }
+        }
+    }
+
+    /**
+     * Wall time and tasks allocated per product by the invokeAll tree of
+     * MatrixMultiplyTask and by CompleterMultiplyTask at several fan-outs,
+     * on a pool of every available processor
+     */
+    private static void benchmarkCompleter() {
+        System.out.println("\n=== RecursiveAction vs. CountedCompleter (ms per product / tasks) ===");
+        System.out.println("Size\tRecursiveAction\t\tCompleter x2\t\tCompleter x4\t\tCompleter x8");
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        MatrixKernel kernel = KernelRegistry.DEFAULT;
+
+        for (int size : new int[]{500, 2000, 5000}) {
+            double[][] A = MatrixMultiplier.generateRandomMatrix(size, size, SEED);
+            double[][] B = MatrixMultiplier.generateRandomMatrix(size, size, SEED + 1);
+
+            MatrixMultiplyTask.Report report = new MatrixMultiplyTask.Report();
+            MatrixMultiplier.multiplyMatrices(A, B, threads, kernel, report);
+            double time = averageMillis(() -> MatrixMultiplier.multiplyMatrices(A, B, threads, kernel));
+            System.out.printf("%d\t%.2f / %d", size, time, report.taskCount());
+
+            for (int fanOut : new int[]{2, 4, 8}) {
+                MatrixMultiplyTask.Report completerReport = new MatrixMultiplyTask.Report();
+                MatrixMultiplier.multiplyWithCompleter(A, B, threads, kernel, fanOut, completerReport);
+                double completerTime = averageMillis(() ->
+                        MatrixMultiplier.multiplyWithCompleter(A, B, threads, kernel, fanOut));
+                System.out.printf("\t\t%.2f / %d", completerTime, completerReport.taskCount());
+            }
+            System.out.println();
+        }
+    }
+
+    private static double gflops(double flops, double millis) {
+        return flops / (millis * 1_000_000.0);
+    }
+
+    private static void printPrecisionRow(int size, String engine, double doubleTime, double floatTime,
+            double floatDAccTime, double floatError, double floatDAccError) {
+        System.out.printf("%d\t%-10s\t%.2f\t\t%.2f\t\t%.2f\t\t%.2e\t%.2e\n",
+                size, engine, doubleTime, floatTime, floatDAccTime, floatError, floatDAccError);
+    }
+
+    /**
+     * Work measured by averageMillis
+     */
+    private interface Workload {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Warm up, then return the mean wall time of MEASUREMENT_ITERATIONS runs
+     */
+    private static double averageMillis(Workload workload) {
+        try {
+            for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+                workload.run();
+            }
+
+            double totalTime = 0;
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                long startTime = System.nanoTime();
+                workload.run();
+                long endTime = System.nanoTime();
+                totalTime += (endTime - startTime) / 1_000_000.0;
+            }
+            return totalTime / MEASUREMENT_ITERATIONS;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Run standard matrix multiplication test
+     */
+    private static void runTest(double[][] A, double[][] B, int threads) {
         // Multiply
         MatrixMultiplier.multiplyMatrices(A, B, threads);
     }
@@ -245,18 +808,19 @@ public class SimpleMatrixBenchmark {
      * Run custom matrix multiplication test with specified parameters
      */
     private static void runCustomTest(double[][] A, double[][] B, int threads,
-            int threshold, int blockSize, boolean isTransposed) {
-        // Create result matrix
-        double[][] C = new double[A.length][B[0].length];
+            int threshold, int blockSize, MatrixKernel kernel) {
+        // Create result matrix; a transposed B has one row per result column
+        double[][] C = new double[A.length][kernel.transposedB() ? B.length : B[0].length];
 
         // Use custom task with specified parameters
         ForkJoinPool pool = new ForkJoinPool(threads);
-        pool.invoke(new CustomThresholdTask(A, B, C, 0, A.length, threshold, blockSize, isTransposed));
+        pool.invoke(new CustomThresholdTask(A, B, C, 0, A.length, threshold, blockSize, kernel));
         pool.shutdown();
     }
 
     /**
-     * Custom matrix multiplication task with configurable parameters
+     * Custom matrix multiplication task with configurable threshold and
+     * block size; the leaves run any registered kernel
      */
     public static class CustomThresholdTask extends RecursiveAction {
 
@@ -264,11 +828,11 @@ public class SimpleMatrixBenchmark {
         private final int startRow, endRow;
         private final int threshold;
         private final int blockSize;
-        private final boolean isTransposed;
+        private final MatrixKernel kernel;
 
         public CustomThresholdTask(double[][] A, double[][] B, double[][] C,
                 int startRow, int endRow,
-                int threshold, int blockSize, boolean isTransposed) {
+                int threshold, int blockSize, MatrixKernel kernel) {
             this.A = A;
             this.B = B;
             this.C = C;
@@ -276,7 +840,7 @@ public class SimpleMatrixBenchmark {
             this.endRow = endRow;
             this.threshold = threshold;
             this.blockSize = blockSize;
-            this.isTransposed = isTransposed;
+            this.kernel = kernel;
         }
 
         @Override
@@ -284,50 +848,15 @@ public class SimpleMatrixBenchmark {
             int rows = endRow - startRow;
 
             if (rows <= threshold) {
-                multiplyBlocked();
+                kernel.multiplyRows(A, B, C, startRow, endRow, blockSize);
             } else {
                 int mid = (startRow + endRow) / 2;
                 CustomThresholdTask task1 = new CustomThresholdTask(
-                        A, B, C, startRow, mid, threshold, blockSize, isTransposed);
+                        A, B, C, startRow, mid, threshold, blockSize, kernel);
                 CustomThresholdTask task2 = new CustomThresholdTask(
-                        A, B, C, mid, endRow, threshold, blockSize, isTransposed);
+                        A, B, C, mid, endRow, threshold, blockSize, kernel);
                 invokeAll(task1, task2);
             }
         }
-
-        private void multiplyBlocked() {
-            final int n = C[0].length;
-            final int k = A[0].length;
-
-            for (int i0 = startRow; i0 < endRow; i0 += blockSize) {
-                int iLimit = Math.min(i0 + blockSize, endRow);
-
-                for (int j0 = 0; j0 < n; j0 += blockSize) {
-                    int jLimit = Math.min(j0 + blockSize, n);
-
-                    for (int k0 = 0; k0 < k; k0 += blockSize) {
-                        int kLimit = Math.min(k0 + blockSize, k);
-
-                        for (int i = i0; i < iLimit; i++) {
-                            for (int j = j0; j < jLimit; j++) {
-                                double sum = C[i][j];
-
-                                if (isTransposed) {
-                                    for (int kk = k0; kk < kLimit; kk++) {
-                                        sum += A[i][kk] * B[j][kk];
-                                    }
-                                } else {
-                                    for (int kk = k0; kk < kLimit; kk++) {
-                                        sum += A[i][kk] * B[kk][j];
-                                    }
-                                }
-
-                                C[i][j] = sum;
-                            }
-                        }
-                    }
-                }
-            }
-        }
     }
 }
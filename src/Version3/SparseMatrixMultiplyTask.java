@@ -0,0 +1,79 @@
+package Version3;
+
+import Configuration.CsrMatrix;
+import Configuration.FlatMatrix;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ForkJoin sparse x dense multiply. Splits the row range at the row where
+ * half of its nonzeros fall on each side rather than at the middle row, so
+ * a few heavy rows do not leave one worker with most of the work
+ */
+public class SparseMatrixMultiplyTask extends RecursiveAction {
+
+    private final CsrMatrix A;
+    private final FlatMatrix B, C;
+    private final int startRow, endRow;
+    private final int grain;
+
+    /**
+     * Constructor for sparse matrix multiplication task
+     *
+     * @param A Sparse first matrix
+     * @param B Dense second matrix
+     * @param C Dense result matrix
+     * @param startRow Starting row index
+     * @param endRow Ending row index (exclusive)
+     * @param grain Largest number of nonzeros a leaf processes
+     */
+    public SparseMatrixMultiplyTask(CsrMatrix A, FlatMatrix B, FlatMatrix C,
+            int startRow, int endRow, int grain) {
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.startRow = startRow;
+        this.endRow = endRow;
+        this.grain = grain;
+    }
+
+    /**
+     * Leaf size giving roughly eight leaves per worker
+     */
+    public static int defaultGrain(CsrMatrix A, int parallelism) {
+        return Math.max(1, A.nnz() / (parallelism * 8));
+    }
+
+    @Override
+    protected void compute() {
+        int nnz = A.rowPtr[endRow] - A.rowPtr[startRow];
+
+        if (endRow - startRow <= 1 || nnz <= grain) {
+            CsrMatrix.multiplyRows(A, B, C, startRow, endRow);
+        } else {
+            int mid = splitRow();
+            SparseMatrixMultiplyTask task1 = new SparseMatrixMultiplyTask(A, B, C, startRow, mid, grain);
+            SparseMatrixMultiplyTask task2 = new SparseMatrixMultiplyTask(A, B, C, mid, endRow, grain);
+            invokeAll(task1, task2);
+        }
+    }
+
+    /**
+     * First row whose rowPtr reaches the nonzero midpoint, kept strictly
+     * inside the range so both halves make progress
+     */
+    private int splitRow() {
+        int target = A.rowPtr[startRow] + (A.rowPtr[endRow] - A.rowPtr[startRow]) / 2;
+        int lo = startRow + 1;
+        int hi = endRow - 1;
+        while (lo < hi) {
+            int m = (lo + hi) >>> 1;
+            if (A.rowPtr[m] < target) {
+                lo = m + 1;
+            } else {
+                hi = m;
+            }
+        }
+        return lo;
+    }
+}
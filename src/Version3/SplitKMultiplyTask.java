@@ -0,0 +1,190 @@
+package Version3;
+
+import Configuration.MatrixKernel;
+import Configuration.ProgressTracker;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Split-K multiplication for products with a small result and a long inner
+ * dimension, e.g. 128 x 1,000,000 by 1,000,000 x 128 (a Gram or covariance
+ * matrix). MatrixMultiplyTask only splits C, so such a product has too few
+ * tiles to keep the pool busy and every tile re-reads a long strip of A and
+ * B from memory.
+ *
+ * This task splits the inner dimension instead. The k range is cut into one
+ * slice per worker; each slice multiplies its columns of A by its rows of B
+ * with the leaf kernel into a partial C of its own (slice 0 uses C itself),
+ * and the partials are then summed by a parallel pairwise tree reduction of
+ * depth log2(slices). Like the kernels, the task accumulates into C.
+ *
+ * isPreferred() decides when the engine picks this mode over 2D tiles.
+ */
+public class SplitKMultiplyTask extends RecursiveAction {
+
+    /** Split-K is chosen once k is at least this many times max(m, n) */
+    static final int SPLIT_K_RATIO = 16;
+    /** Shortest k slice worth a partial C of its own */
+    static final int MIN_SLICE = 256;
+    /** Columns of A copied per kernel call within a slice */
+    static final int PANEL = 256;
+
+    /**
+     * Whether a rows x k by k x cols product on a pool of the given
+     * parallelism should be split along k rather than over tiles of C
+     */
+    static boolean isPreferred(int rows, int cols, int k, int parallelism) {
+        return parallelism > 1
+                && k >= 2 * MIN_SLICE
+                && k >= (long) SPLIT_K_RATIO * Math.max(rows, cols);
+    }
+
+    private final double[][] A, B, C;
+    private final ProgressTracker progress;
+    private final MatrixKernel kernel;
+    private final int blockSize;
+    // Slice count; 0 means one per worker of the pool running the task
+    private final int slices;
+
+    /**
+     * @param A First matrix, m x k
+     * @param B Second matrix, transposed when kernel.transposedB() is true
+     * @param C Result matrix, m x n, accumulated into
+     * @param progress Tracker advanced by every slice's share of the m x n elements
+     * @param kernel Kernel run on every slice
+     */
+    public SplitKMultiplyTask(double[][] A, double[][] B, double[][] C, ProgressTracker progress,
+            MatrixKernel kernel) {
+        this(A, B, C, progress, kernel, MatrixMultiplyTask.determineBlockSize(MatrixMultiplier.tuningSize(A.length, C[0].length)), 0);
+    }
+
+    /**
+     * Constructor with an explicit block size and slice count
+     *
+     * @param blockSize Block size passed to the kernel
+     * @param slices Number of k slices, or 0 for one per worker
+     */
+    public SplitKMultiplyTask(double[][] A, double[][] B, double[][] C, ProgressTracker progress,
+            MatrixKernel kernel, int blockSize, int slices) {
+        this.A = A;
+        this.B = B;
+        this.C = C;
+        this.progress = progress;
+        this.kernel = kernel;
+        this.blockSize = blockSize;
+        this.slices = slices;
+    }
+
+    @Override
+    protected void compute() {
+        int k = A[0].length;
+        int count = slices;
+        if (count == 0) {
+            ForkJoinPool pool = getPool();
+            int parallelism = pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism();
+            count = Math.max(1, Math.min(parallelism, k / MIN_SLICE));
+        }
+        count = Math.min(count, k);
+
+        double[][][] partials = new double[count][][];
+        partials[0] = C;
+        SliceTask[] tasks = new SliceTask[count];
+        for (int s = 0; s < count; s++) {
+            tasks[s] = new SliceTask(partials, s, count);
+        }
+        invokeAll(tasks);
+
+        new ReduceTask(partials, 0, count).invoke();
+    }
+
+    /**
+     * One k slice: allocates its partial C on the worker that fills it and
+     * accumulates its columns of A times its rows of B into it
+     */
+    private final class SliceTask extends RecursiveAction {
+        private final double[][][] partials;
+        private final int slice, count;
+
+        SliceTask(double[][][] partials, int slice, int count) {
+            this.partials = partials;
+            this.slice = slice;
+            this.count = count;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = C.length;
+            int cols = C[0].length;
+            int k = A[0].length;
+            int from = (int) ((long) k * slice / count);
+            int to = (int) ((long) k * (slice + 1) / count);
+
+            double[][] partial = slice == 0 ? C : new double[rows][cols];
+            // The kernel runs over the whole inner dimension of its operands,
+            // so the slice is fed to it in panels of PANEL columns of A (and
+            // of a transposed B) copied into short rows; B as given only
+            // needs a view of its rows. The copies stay in cache and never
+            // add more than a panel per worker to the heap
+            double[][] panelA = null, panelB = null;
+            for (int p = from; p < to; p += PANEL) {
+                int end = Math.min(p + PANEL, to);
+                panelA = columns(A, p, end, panelA);
+                panelB = kernel.transposedB() ? columns(B, p, end, panelB) : Arrays.copyOfRange(B, p, end);
+                kernel.multiplyTile(panelA, panelB, partial, 0, rows, 0, cols, blockSize);
+            }
+            partials[slice] = partial;
+
+            long elements = (long) rows * cols;
+            progress.advance(elements * (slice + 1) / count - elements * slice / count);
+        }
+    }
+
+    /**
+     * Sums partials[from..to) into partials[from]: both halves are reduced
+     * in parallel, then the upper half's sum is added to the lower one
+     */
+    private static final class ReduceTask extends RecursiveAction {
+        private final double[][][] partials;
+        private final int from, to;
+
+        ReduceTask(double[][][] partials, int from, int to) {
+            this.partials = partials;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2) {
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ReduceTask(partials, from, mid), new ReduceTask(partials, mid, to));
+
+            double[][] target = partials[from];
+            double[][] source = partials[mid];
+            for (int i = 0; i < target.length; i++) {
+                double[] t = target[i];
+                double[] s = source[i];
+                for (int j = 0; j < t.length; j++) {
+                    t[j] += s[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Columns [from, to) of every row of matrix, copied into reuse when its
+     * rows have that width, else into a new matrix
+     */
+    static double[][] columns(double[][] matrix, int from, int to, double[][] reuse) {
+        int width = to - from;
+        double[][] result = reuse != null && reuse[0].length == width ? reuse : new double[matrix.length][width];
+        for (int i = 0; i < matrix.length; i++) {
+            System.arraycopy(matrix[i], from, result[i], 0, width);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,257 @@
+package Version3;
+
+import Configuration.FlatMatrix;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Strassen-Winograd multiplication of two square FlatMatrix operands whose
+ * size halves evenly down to the cutoff (see paddedSize). Each level does
+ * seven half-size products instead of eight and 15 additions, so the work
+ * is O(n^2.81); below the cutoff the leaves use the blocked i-k-j kernel.
+ *
+ * Workspace is bounded by forking the seven products only in the top
+ * parallelDepth levels and running deeper levels one product at a time.
+ * Every temporary is charged to a WorkspaceMeter, so the peak can be
+ * reported and compared with workspaceBound().
+ */
+public class StrassenMultiplyTask extends RecursiveTask<FlatMatrix> {
+
+    public static final int DEFAULT_CUTOFF = 128;
+
+    private final FlatMatrix A, B;
+    private final int cutoff;
+    private final int blockSize;
+    private final int parallelDepth;
+    private final WorkspaceMeter meter;
+
+    /**
+     * Live and peak bytes of the temporaries held by a Strassen run
+     */
+    public static final class WorkspaceMeter {
+        private final AtomicLong live = new AtomicLong();
+        private final AtomicLong peak = new AtomicLong();
+
+        void allocate(long bytes) {
+            long now = live.addAndGet(bytes);
+            peak.accumulateAndGet(now, Math::max);
+        }
+
+        void free(long bytes) {
+            live.addAndGet(-bytes);
+        }
+
+        public long liveBytes() {
+            return live.get();
+        }
+
+        public long peakBytes() {
+            return peak.get();
+        }
+    }
+
+    /**
+     * Constructor for Strassen multiplication task
+     *
+     * @param A First matrix, square, size halvable down to the cutoff
+     * @param B Second matrix, same size as A
+     * @param cutoff Size at or below which the blocked kernel is used
+     * @param blockSize Block size of the leaf kernel
+     * @param parallelDepth Number of top levels whose seven products are forked
+     * @param meter Accounting for the temporaries
+     */
+    public StrassenMultiplyTask(FlatMatrix A, FlatMatrix B, int cutoff, int blockSize,
+            int parallelDepth, WorkspaceMeter meter) {
+        this.A = A;
+        this.B = B;
+        this.cutoff = cutoff;
+        this.blockSize = blockSize;
+        this.parallelDepth = parallelDepth;
+        this.meter = meter;
+    }
+
+    /**
+     * Smallest size >= n that halves evenly until it is at most cutoff, so
+     * padding adds fewer than 2^levels rows and columns rather than rounding
+     * up to the next power of two
+     */
+    public static int paddedSize(int n, int cutoff) {
+        int levels = levels(n, cutoff);
+        int leaf = (n + (1 << levels) - 1) >> levels;
+        return leaf << levels;
+    }
+
+    /**
+     * Number of Strassen levels before the leaves reach the cutoff
+     */
+    public static int levels(int n, int cutoff) {
+        int levels = 0;
+        while (((n + (1 << levels) - 1) >> levels) > cutoff) {
+            levels++;
+        }
+        return levels;
+    }
+
+    /**
+     * Forked levels needed to give each of numThreads workers about four
+     * products, capped at the recursion depth
+     */
+    public static int parallelDepth(int numThreads, int levels) {
+        int depth = 0;
+        long tasks = 1;
+        while (depth < levels && tasks < 4L * numThreads) {
+            tasks *= 7;
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Upper bound in bytes on the peak live workspace of a run on padded
+     * size m, including the m x m result
+     */
+    public static long workspaceBound(int m, int cutoff, int parallelDepth) {
+        long square = (long) m * m * Double.BYTES;
+        if (m <= cutoff) {
+            return square;
+        }
+        long quarter = square / 4;
+        long child = workspaceBound(m / 2, cutoff, parallelDepth - 1);
+        long products = parallelDepth > 0
+                ? 14 * quarter + 7 * child          // all seven children live at once
+                : 14 * quarter + 6 * quarter + child; // one child at a time, six finished products
+        return Math.max(products, 7 * quarter + square);
+    }
+
+    @Override
+    protected FlatMatrix compute() {
+        int m = A.row;
+
+        if (m <= cutoff) {
+            FlatMatrix C = allocate(m);
+            FlatMatrix.multiplyRowsBlocked(A, B, C, 0, m, blockSize);
+            return C;
+        }
+
+        int h = m / 2;
+        FlatMatrix a11 = allocate(h), a12 = allocate(h), a22 = allocate(h);
+        FlatMatrix b11 = allocate(h), b21 = allocate(h), b22 = allocate(h);
+        FlatMatrix s1 = allocate(h), s2 = allocate(h), s3 = allocate(h), s4 = allocate(h);
+        FlatMatrix t1 = allocate(h), t2 = allocate(h), t3 = allocate(h), t4 = allocate(h);
+        formOperands(h, a11, a12, a22, b11, b21, b22, s1, s2, s3, s4, t1, t2, t3, t4);
+
+        StrassenMultiplyTask[] products = {
+                child(a11, b11), // P1
+                child(a12, b21), // P2
+                child(s4, b22),  // P3
+                child(a22, t4),  // P4
+                child(s1, t1),   // P5
+                child(s2, t2),   // P6
+                child(s3, t3)    // P7
+        };
+
+        FlatMatrix[] p = new FlatMatrix[7];
+        if (parallelDepth > 0) {
+            invokeAll(products);
+            for (int i = 0; i < 7; i++) {
+                p[i] = products[i].join();
+            }
+        } else {
+            for (int i = 0; i < 7; i++) {
+                p[i] = products[i].compute();
+            }
+        }
+
+        for (FlatMatrix temporary : new FlatMatrix[]{a11, a12, a22, b11, b21, b22, s1, s2, s3, s4, t1, t2, t3, t4}) {
+            free(temporary);
+        }
+
+        FlatMatrix C = allocate(m);
+        combine(h, p, C);
+        for (FlatMatrix product : p) {
+            free(product);
+        }
+        return C;
+    }
+
+    private StrassenMultiplyTask child(FlatMatrix left, FlatMatrix right) {
+        return new StrassenMultiplyTask(left, right, cutoff, blockSize, parallelDepth - 1, meter);
+    }
+
+    /**
+     * Copy the quadrants the products need and form the Winograd sums
+     * S1 = A21 + A22, S2 = S1 - A11, S3 = A11 - A21, S4 = A12 - S2,
+     * T1 = B12 - B11, T2 = B22 - T1, T3 = B22 - B12, T4 = T2 - B21
+     * in a single pass over the operands
+     */
+    private void formOperands(int h, FlatMatrix a11, FlatMatrix a12, FlatMatrix a22,
+            FlatMatrix b11, FlatMatrix b21, FlatMatrix b22,
+            FlatMatrix s1, FlatMatrix s2, FlatMatrix s3, FlatMatrix s4,
+            FlatMatrix t1, FlatMatrix t2, FlatMatrix t3, FlatMatrix t4) {
+        final double[] a = A.data, b = B.data;
+
+        for (int i = 0; i < h; i++) {
+            int top = i * A.stride, bottom = (i + h) * A.stride;
+            int btop = i * B.stride, bbottom = (i + h) * B.stride;
+            int q = i * h;
+            for (int j = 0; j < h; j++) {
+                double x11 = a[top + j], x12 = a[top + h + j];
+                double x21 = a[bottom + j], x22 = a[bottom + h + j];
+                double y11 = b[btop + j], y12 = b[btop + h + j];
+                double y21 = b[bbottom + j], y22 = b[bbottom + h + j];
+
+                a11.data[q + j] = x11;
+                a12.data[q + j] = x12;
+                a22.data[q + j] = x22;
+                b11.data[q + j] = y11;
+                b21.data[q + j] = y21;
+                b22.data[q + j] = y22;
+
+                double sum1 = x21 + x22, sum2 = sum1 - x11;
+                s1.data[q + j] = sum1;
+                s2.data[q + j] = sum2;
+                s3.data[q + j] = x11 - x21;
+                s4.data[q + j] = x12 - sum2;
+
+                double diff1 = y12 - y11, diff2 = y22 - diff1;
+                t1.data[q + j] = diff1;
+                t2.data[q + j] = diff2;
+                t3.data[q + j] = y22 - y12;
+                t4.data[q + j] = diff2 - y21;
+            }
+        }
+    }
+
+    /**
+     * C11 = P1 + P2, C12 = U2 + P5 + P3, C21 = U3 - P4, C22 = U3 + P5
+     * with U2 = P1 + P6 and U3 = U2 + P7
+     */
+    private static void combine(int h, FlatMatrix[] p, FlatMatrix C) {
+        final double[] p1 = p[0].data, p2 = p[1].data, p3 = p[2].data, p4 = p[3].data;
+        final double[] p5 = p[4].data, p6 = p[5].data, p7 = p[6].data;
+        final double[] c = C.data;
+
+        for (int i = 0; i < h; i++) {
+            int top = i * C.stride, bottom = (i + h) * C.stride;
+            int q = i * h;
+            for (int j = 0; j < h; j++) {
+                double u2 = p1[q + j] + p6[q + j];
+                double u3 = u2 + p7[q + j];
+                c[top + j] = p1[q + j] + p2[q + j];
+                c[top + h + j] = u2 + p5[q + j] + p3[q + j];
+                c[bottom + j] = u3 - p4[q + j];
+                c[bottom + h + j] = u3 + p5[q + j];
+            }
+        }
+    }
+
+    private FlatMatrix allocate(int size) {
+        meter.allocate((long) size * size * Double.BYTES);
+        return new FlatMatrix(size, size);
+    }
+
+    private void free(FlatMatrix matrix) {
+        meter.free((long) matrix.data.length * Double.BYTES);
+    }
+}